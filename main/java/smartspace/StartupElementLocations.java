@@ -0,0 +1,94 @@
+package smartspace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+
+import smartspace.data.ElementEntity;
+import smartspace.data.Location;
+
+/**
+ * Adds the GeoJSON point (location.point) used by the location search to
+ * ELEMENTS documents that were saved before it existed. The 2dsphere index on
+ * it is created by {@link StartupIndexes}.
+ */
+@Component
+public class StartupElementLocations implements CommandLineRunner {
+	private static final int MIGRATION_BATCH_SIZE = 500;
+
+	private Log logger = LogFactory.getLog(StartupElementLocations.class);
+	private MongoTemplate mongoTemplate;
+
+	public StartupElementLocations() {
+	}
+
+	@Autowired
+	public StartupElementLocations(MongoTemplate mongoTemplate) {
+		this.mongoTemplate = mongoTemplate;
+	}
+
+	@Override
+	public void run(String... args) throws Exception {
+		migrateLocations();
+	}
+
+	private void migrateLocations() {
+		MongoCollection<Document> elements = this.mongoTemplate.getCollection(
+				this.mongoTemplate.getCollectionName(ElementEntity.class));
+
+		List<WriteModel<Document>> updates = new ArrayList<>();
+		long migrated = 0;
+
+		try (MongoCursor<Document> cursor = elements
+				.find(Filters.and(Filters.exists("location"), Filters.exists("location.point", false)))
+				.projection(Projections.include("location.x", "location.y")).iterator()) {
+
+			while (cursor.hasNext()) {
+				Document element = cursor.next();
+				Document location = element.get("location", Document.class);
+
+				Number x = location.get("x", Number.class);
+				Number y = location.get("y", Number.class);
+				if (x == null || y == null || Location.toPoint(x.doubleValue(), y.doubleValue()) == null) {
+					// not a valid lat/lng, can't be found by location search
+					continue;
+				}
+
+				Document point = new Document("type", "Point").append("coordinates",
+						Arrays.asList(y.doubleValue(), x.doubleValue()));
+				updates.add(new UpdateOneModel<>(Filters.eq("_id", element.get("_id")),
+						Updates.set("location.point", point)));
+
+				if (updates.size() == MIGRATION_BATCH_SIZE) {
+					migrated += elements.bulkWrite(updates, new BulkWriteOptions().ordered(false)).getModifiedCount();
+					updates.clear();
+				}
+			}
+		}
+
+		if (!updates.isEmpty()) {
+			migrated += elements.bulkWrite(updates, new BulkWriteOptions().ordered(false)).getModifiedCount();
+		}
+
+		if (migrated > 0) {
+			logger.info("added GeoJSON location to " + migrated + " elements");
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package smartspace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeospatialIndex;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.MongoCommandException;
+
+import smartspace.dao.rdb.RdbElementDao;
+import smartspace.data.ElementEntity;
+
+/**
+ * Creates the indexes of the ELEMENTS queries at startup and reports the
+ * queries that still scan the whole collection.
+ * <p>
+ * Each index matches the filter of a query followed by its sort key, so the
+ * sort is read from the index. The indexes that only serve players are partial
+ * on expired=false and skip the expired elements. Creation is idempotent and
+ * runs in the background; an index whose definition changed is dropped and
+ * created again.
+ */
+@Component
+public class StartupIndexes implements CommandLineRunner {
+	public static final String LOCATION_INDEX = "elements_location_2dsphere";
+
+	// MongoDB error codes of an existing index with the same name or keys and other options
+	private static final int INDEX_OPTIONS_CONFLICT = 85;
+	private static final int INDEX_KEY_SPECS_CONFLICT = 86;
+
+	private Log logger = LogFactory.getLog(StartupIndexes.class);
+	private MongoTemplate mongoTemplate;
+
+	public StartupIndexes() {
+	}
+
+	@Autowired
+	public StartupIndexes(MongoTemplate mongoTemplate) {
+		this.mongoTemplate = mongoTemplate;
+	}
+
+	@Override
+	public void run(String... args) throws Exception {
+		IndexOperations indexOps = this.mongoTemplate.indexOps(ElementEntity.class);
+		for (IndexDefinition index : elementIndexes()) {
+			ensureIndex(indexOps, index);
+		}
+
+		reportCollectionScans();
+	}
+
+	private List<IndexDefinition> elementIndexes() {
+		PartialIndexFilter notExpired = PartialIndexFilter.of(Criteria.where("expired").is(false));
+		PartialIndexFilter shoppingLists = PartialIndexFilter
+				.of(Criteria.where("type").is(RdbElementDao.SHOPPING_LIST_TYPE));
+
+		List<IndexDefinition> indexes = new ArrayList<>();
+
+		// findAllByExpired(false) sorted by key
+		indexes.add(new Index().on("expired", Direction.ASC).on("_id", Direction.ASC).partial(notExpired)
+				.named("elements_active_key").background());
+
+		// findAllByName / findAllByNameAndExpired(false) sorted by key
+		indexes.add(new Index().on("name", Direction.ASC).on("_id", Direction.ASC)
+				.named("elements_name_key").background());
+		indexes.add(new Index().on("name", Direction.ASC).on("expired", Direction.ASC).on("_id", Direction.ASC)
+				.partial(notExpired).named("elements_active_name_key").background());
+
+		// findAllByType / findAllByTypeAndExpired(false) sorted by key
+		indexes.add(new Index().on("type", Direction.ASC).on("_id", Direction.ASC)
+				.named("elements_type_key").background());
+		indexes.add(new Index().on("type", Direction.ASC).on("expired", Direction.ASC).on("_id", Direction.ASC)
+				.partial(notExpired).named("elements_active_type_key").background());
+
+		// readAllListsByCreatorOrMember, one index per $or branch sorted by
+		// creationTimestamp and key, so the branches are merged without a sort
+		indexes.add(new Index().on("creatorSmartspace", Direction.ASC).on("creatorEmail", Direction.ASC)
+				.on("type", Direction.ASC).on("creationTimestamp", Direction.ASC).on("_id", Direction.ASC)
+				.named("elements_creator_type_created").background());
+		indexes.add(new Index().on("moreAttributes.members", Direction.ASC).on("type", Direction.ASC)
+				.on("creationTimestamp", Direction.ASC).on("_id", Direction.ASC).partial(shoppingLists)
+				.named("elements_list_members_created").background());
+
+		// findItemsByShoppingList sorted by creationTimestamp
+		indexes.add(new Index().on("moreAttributes.listKey.smartspace", Direction.ASC)
+				.on("moreAttributes.listKey.id", Direction.ASC).on("type", Direction.ASC)
+				.on("creationTimestamp", Direction.ASC).named("elements_list_items_created").background());
+
+		// searchByLocation
+		indexes.add(new GeospatialIndex("location.point").typed(GeoSpatialIndexType.GEO_2DSPHERE)
+				.named(LOCATION_INDEX));
+
+		return indexes;
+	}
+
+	private void ensureIndex(IndexOperations indexOps, IndexDefinition index) {
+		try {
+			indexOps.ensureIndex(index);
+		} catch (DataAccessException e) {
+			if (!isIndexConflict(e)) {
+				throw e;
+			}
+
+			// the index exists with an older definition
+			String name = index.getIndexOptions().getString("name");
+			logger.info("recreating index " + name + " with a new definition");
+			indexOps.dropIndex(name);
+			indexOps.ensureIndex(index);
+		}
+	}
+
+	private boolean isIndexConflict(Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof MongoCommandException) {
+				int code = ((MongoCommandException) cause).getErrorCode();
+				return code == INDEX_OPTIONS_CONFLICT || code == INDEX_KEY_SPECS_CONFLICT;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Explain every query shape of ElementCrud and RdbElementDao and warn about
+	 * the ones whose winning plan is a collection scan.
+	 */
+	private void reportCollectionScans() {
+		Document key = new Document("_id", 1);
+		Document created = new Document("creationTimestamp", 1);
+		String list = RdbElementDao.SHOPPING_LIST_TYPE;
+		String item = RdbElementDao.SHOPPING_ITEM_TYPE;
+
+		List<Document[]> shapes = Arrays.asList(
+				new Document[] { new Document("expired", false), key },
+				new Document[] { new Document("name", ""), key },
+				new Document[] { new Document("name", "").append("expired", false), key },
+				new Document[] { new Document("type", ""), key },
+				new Document[] { new Document("type", "").append("expired", false), key },
+				new Document[] { new Document("$or", Arrays.asList(
+						new Document("creatorSmartspace", "").append("creatorEmail", "").append("type", list),
+						new Document("moreAttributes.members", new Document("userSmartspace", "").append("userEmail", ""))
+								.append("type", list))),
+						new Document("creationTimestamp", 1).append("_id", 1) },
+				new Document[] { new Document("moreAttributes.listKey.smartspace", "")
+						.append("moreAttributes.listKey.id", "").append("type", item), created },
+				new Document[] { new Document("location.point", new Document("$geoWithin",
+						new Document("$centerSphere", Arrays.asList(Arrays.asList(0.0, 0.0), 0.1)))), key });
+
+		String collection = this.mongoTemplate.getCollectionName(ElementEntity.class);
+		for (Document[] shape : shapes) {
+			try {
+				Document explain = this.mongoTemplate.getDb().runCommand(new Document("explain",
+						new Document("find", collection).append("filter", shape[0]).append("sort", shape[1]))
+								.append("verbosity", "queryPlanner"));
+
+				Document plan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+				if (hasStage(plan, "COLLSCAN")) {
+					logger.warn("query on " + collection + " " + shape[0].toJson() + " sorted by "
+							+ shape[1].toJson() + " scans the whole collection");
+				}
+			} catch (Exception e) {
+				logger.debug("could not explain " + shape[0].toJson() + ": " + e.getMessage());
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean hasStage(Document plan, String stage) {
+		if (plan == null) {
+			return false;
+		}
+		if (stage.equals(plan.getString("stage"))) {
+			return true;
+		}
+		if (hasStage(plan.get("inputStage", Document.class), stage)) {
+			return true;
+		}
+
+		List<Document> inputStages = (List<Document>) plan.get("inputStages");
+		if (inputStages != null) {
+			for (Document input : inputStages) {
+				if (hasStage(input, stage)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
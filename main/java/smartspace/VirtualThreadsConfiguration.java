@@ -0,0 +1,42 @@
+package smartspace;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import smartspace.infra.VirtualThreads;
+
+/**
+ * Runs every request on its own virtual thread instead of on the Tomcat
+ * worker pool. Enabled by smartspace.threads.virtual, which the
+ * virtual-threads profile sets; the application's executors read the same
+ * property (see VirtualThreads).
+ * <p>
+ * Requests are then bounded by server.tomcat.max-connections, not by
+ * server.tomcat.max-threads.
+ */
+@Configuration
+@ConditionalOnProperty(name = "smartspace.threads.virtual", havingValue = "true")
+public class VirtualThreadsConfiguration {
+	private Log logger = LogFactory.getLog(VirtualThreadsConfiguration.class);
+
+	@Bean
+	public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadRequests() {
+		return factory -> factory.addConnectorCustomizers(connector -> {
+			ProtocolHandler handler = connector.getProtocolHandler();
+			if (handler instanceof AbstractProtocol) {
+				((AbstractProtocol<?>) handler).setExecutor(VirtualThreads.perTaskExecutor("http-virtual"));
+				logger.info("requests on port " + connector.getPort() + " run on virtual threads");
+			} else {
+				logger.warn("requests on port " + connector.getPort() + " keep the Tomcat worker pool, "
+						+ handler.getClass().getName() + " takes no executor");
+			}
+		});
+	}
+}
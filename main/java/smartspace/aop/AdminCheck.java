@@ -0,0 +1,39 @@
+package smartspace.aop;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import smartspace.dao.EnhancedUserDao;
+import smartspace.data.UserKey;
+import smartspace.data.UserRole;
+
+/**
+ * Checks that a user is an admin. AdminOnlyAspect runs it before the service
+ * methods, and a controller calls it directly when the check must come before
+ * the request body is read.
+ */
+@Component
+public class AdminCheck {
+	private EnhancedUserDao<UserKey> userDao;
+
+	@Autowired
+	public void setUserDao(EnhancedUserDao<UserKey> userDao) {
+		this.userDao = userDao;
+	}
+
+	/**
+	 * @param smartspace the user smartspace
+	 * @param email      the user email
+	 * @throws ResponseStatusException 401 if the user doesn't exist or is not an admin
+	 */
+	public void check(String smartspace, String email) {
+		UserRole role = this.userDao.readRoleById(new UserKey(smartspace, email)).orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "The given user doesn't exist"));
+		
+		// check that the user has ADMIN privileges 
+		if (role != UserRole.ADMIN) {
+			throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Only admins are allowed access this resource");
+		}
+	}
+}
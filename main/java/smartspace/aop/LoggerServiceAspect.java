@@ -7,19 +7,29 @@ package smartspace.aop;
  * @author liadkh	08-05-2019
  */
 
-import java.util.List;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import smartspace.data.UserEntity;
 import smartspace.data.UserRole;
 
 /**
  * The Class LoggerServiceAspect.
+ * <p>
+ * Measures every service method annotated with LoggerService: its latency and
+ * outcome are recorded in ServiceMetrics, tagged by operation type and role.
+ * The operation of a method is resolved once, and the debug messages are only
+ * built when debug logging is enabled.
  */
 @Component
 @Aspect
@@ -28,160 +38,122 @@ public class LoggerServiceAspect {
 	/** The logger. */
 	private Log logger = LogFactory.getLog(LoggerServiceAspect.class);
 
-	/**
-	 * Import data.
-	 *
-	 * @param pjp the pjp
-	 * @param adminSmartspace the admin smartspace
-	 * @param adminEmail the admin email
-	 * @return the list
-	 * @throws Throwable the throwable
-	 */
-	@Around("@annotation(smartspace.aop.LoggerService) && execution(* smartspace.infra..import*(..)) && args(adminSmartspace,adminEmail,..)")
-	public List<?> importData(ProceedingJoinPoint pjp, String adminSmartspace, String adminEmail) throws Throwable {
-
-		String method = pjp.getSignature().getName();
-		String fullyQualifiedClassName = pjp.getTarget().getClass().getName();
-
-		String fullMessage = fullyQualifiedClassName + "." + method + "()" + " by: " + adminSmartspace + "#"
-				+ adminEmail;
+	/** The metrics of the measured methods. */
+	private ServiceMetrics metrics;
 
-		logger.debug("*** Try to import data: " + fullMessage);
-
-		List<?> rv;
-		boolean success = true;
-		try {
-			rv = (List<?>) pjp.proceed();
-			return rv;
-		} catch (Exception e) {
-			success = false;
-			throw e;
-		} finally {
-			logger.debug("*** Import data " + (success ? "success" : "failed") + " " + fullMessage);
-		}
-	}
+	/** The operation of each measured method. */
+	private Map<Method, Operation> operations;
 
 	/**
-	 * Export data.
-	 *
-	 * @param pjp the pjp
-	 * @param adminSmartspace the admin smartspace
-	 * @param adminEmail the admin email
-	 * @return the list
-	 * @throws Throwable the throwable
+	 * Instantiates a new logger service aspect.
 	 */
-	@Around("@annotation(smartspace.aop.LoggerService) && execution(* smartspace.infra..get*(..)) && args(adminSmartspace,adminEmail,..)")
-	public List<?> exportData(ProceedingJoinPoint pjp, String adminSmartspace, String adminEmail) throws Throwable {
-
-		String method = pjp.getSignature().getName();
-		String fullyQualifiedClassName = pjp.getTarget().getClass().getName();
-
-		String fullMessage = fullyQualifiedClassName + "." + method + "()" + " by: " + adminSmartspace + "#"
-				+ adminEmail;
-
-		logger.debug("*** Try to export data: " + fullMessage);
-
-		List<?> rv;
-		boolean success = true;
-		try {
-			rv = (List<?>) pjp.proceed();
-			return rv;
-		} catch (Exception e) {
-			success = false;
-			throw e;
-		} finally {
-			logger.debug("*** Export data " + (success ? "success" : "failed") + " " + fullMessage);
-		}
+	public LoggerServiceAspect() {
+		this.operations = new ConcurrentHashMap<>();
 	}
 
 	/**
-	 * Gets the data.
+	 * Sets the metrics.
 	 *
-	 * @param pjp the pjp
-	 * @param role the role
-	 * @return the data
-	 * @throws Throwable the throwable
+	 * @param metrics the metrics
 	 */
-	@Around("@annotation(smartspace.aop.LoggerService) && execution(* smartspace.infra..get*(..)) && args(role,..)")
-	public List<?> getData(ProceedingJoinPoint pjp, UserRole role) throws Throwable {
-
-		String method = pjp.getSignature().getName();
-		String fullyQualifiedClassName = pjp.getTarget().getClass().getName();
-
-		String fullMessage = fullyQualifiedClassName + "." + method + "()" + " by: "
-				+ ((role == null) ? null : role.name());
-
-		logger.debug("*** Try to get data: " + fullMessage);
-
-		List<?> rv;
-		boolean success = true;
-		try {
-			rv = (List<?>) pjp.proceed();
-			return rv;
-		} catch (Exception e) {
-			success = false;
-			throw e;
-		} finally {
-			logger.debug("*** Get data " + (success ? "success" : "failed") + " " + fullMessage);
-		}
+	@Autowired
+	public void setMetrics(ServiceMetrics metrics) {
+		this.metrics = metrics;
 	}
 
 	/**
-	 * Register.
+	 * Measure a service call: import*, stream* and the admin get* are exports,
+	 * the other get* are reads by a player or manager, register* and invoke*.
 	 *
 	 * @param pjp the pjp
-	 * @return the object
+	 * @return the result of the call
 	 * @throws Throwable the throwable
 	 */
-	@Around("@annotation(smartspace.aop.LoggerService) && execution(* smartspace.infra..register*(..))")
-	public Object register(ProceedingJoinPoint pjp) throws Throwable {
-
-		String method = pjp.getSignature().getName();
-		String fullyQualifiedClassName = pjp.getTarget().getClass().getName();
-
-		String fullMessage = fullyQualifiedClassName + "." + method + "()";
-
-		logger.debug("*** Try to register: " + fullMessage);
+	@Around("@annotation(smartspace.aop.LoggerService) && (execution(* smartspace.infra..import*(..)) "
+			+ "|| execution(* smartspace.infra..stream*(..)) || execution(* smartspace.infra..get*(..)) "
+			+ "|| execution(* smartspace.infra..register*(..)) || execution(* smartspace.infra..invoke*(..)))")
+	public Object measure(ProceedingJoinPoint pjp) throws Throwable {
+		Object[] args = pjp.getArgs();
+		Operation operation = this.operations.computeIfAbsent(((MethodSignature) pjp.getSignature()).getMethod(),
+				method -> Operation.of(pjp.getTarget().getClass(), method));
+		String role = operation.roleOf(args);
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("*** Try to " + operation.type + ": " + operation.method + " by: " + caller(operation, role, args));
+		}
 
-		Object rv;
-		boolean success = true;
+		long start = System.nanoTime();
+		boolean success = false;
 		try {
-			rv = pjp.proceed();
+			Object rv = pjp.proceed();
+			success = true;
 			return rv;
-		} catch (Exception e) {
-			success = false;
-			throw e;
 		} finally {
-			logger.debug("*** Register " + (success ? "success" : "failed") + " " + fullMessage);
+			long nanos = System.nanoTime() - start;
+			this.metrics.record(operation.type, role, operation.method, nanos, success);
+
+			if (logger.isDebugEnabled()) {
+				logger.debug("*** " + operation.type + " " + (success ? "success" : "failed") + " "
+						+ operation.method + " in " + nanos / 1_000_000.0 + "ms by: " + caller(operation, role, args));
+			}
 		}
 	}
 
+	private String caller(Operation operation, String role, Object[] args) {
+		// the admin operations start with the admin's smartspace and email
+		return operation.byAdmin ? args[0] + "#" + args[1] : role;
+	}
+
 	/**
-	 * Invoke.
-	 *
-	 * @param pjp the pjp
-	 * @return the object
-	 * @throws Throwable the throwable
+	 * The type and role tag of a measured method.
 	 */
-	@Around("@annotation(smartspace.aop.LoggerService) && execution(* smartspace.infra..invoke*(..))")
-	public Object invoke(ProceedingJoinPoint pjp) throws Throwable {
-
-		String method = pjp.getSignature().getName();
-		String fullyQualifiedClassName = pjp.getTarget().getClass().getName();
-
-		String fullMessage = fullyQualifiedClassName + "." + method + "()";
-		logger.debug("*** Try to invoke: " + fullMessage);
-
-		Object rv;
-		boolean success = true;
-		try {
-			rv = pjp.proceed();
+	private static class Operation {
+		private String type;
+		private String method;
+		private boolean byAdmin;
+
+		public static Operation of(Class<?> target, Method method) {
+			Operation rv = new Operation();
+			rv.method = target.getName() + "." + method.getName() + "()";
+
+			String name = method.getName();
+			Class<?>[] parameters = method.getParameterTypes();
+			rv.byAdmin = parameters.length >= 2 && parameters[0] == String.class && parameters[1] == String.class
+					&& (name.startsWith("import") || name.startsWith("stream") || name.startsWith("get"));
+
+			if (name.startsWith("import")) {
+				rv.type = "import";
+			} else if (name.startsWith("stream") || (name.startsWith("get") && rv.byAdmin)) {
+				rv.type = "export";
+			} else if (name.startsWith("get")) {
+				rv.type = "get";
+			} else if (name.startsWith("register")) {
+				rv.type = "register";
+			} else {
+				rv.type = "invoke";
+			}
 			return rv;
-		} catch (Exception e) {
-			success = false;
-			throw e;
-		} finally {
-			logger.debug("*** Invoke " + (success ? "success" : "failed") + " " + fullMessage);
+		}
+
+		public String roleOf(Object[] args) {
+			if (this.byAdmin) {
+				return UserRole.ADMIN.name();
+			}
+			if (this.type.equals("invoke")) {
+				// only players invoke actions
+				return UserRole.PLAYER.name();
+			}
+
+			for (Object arg : args) {
+				if (arg instanceof UserRole) {
+					return ((UserRole) arg).name();
+				}
+				if (arg instanceof UserEntity && ((UserEntity) arg).getRole() != null) {
+					// the role of the registered user
+					return ((UserEntity) arg).getRole().name();
+				}
+			}
+			return "unresolved";
 		}
 	}
 }
@@ -11,7 +11,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 
 import smartspace.dao.EnhancedUserDao;
-import smartspace.data.UserEntity;
 import smartspace.data.UserKey;
 import smartspace.data.UserRole;
 
@@ -34,10 +33,10 @@ public class ManagerOnlyAspect {
 		String fullyQualifiedClassName = jp.getTarget().getClass().getName();
 		logger.debug(fullyQualifiedClassName + "." + method + "() - " + " using ManagerOnly check");
 				
-		UserEntity user = this.userDao.readById(new UserKey(smartspace, email))
+		UserRole role = this.userDao.readRoleById(new UserKey(smartspace, email))
 				.orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "The given user doesn't exist"));
 
-		if (!(user.getRole() == UserRole.MANAGER)) {
+		if (!(role == UserRole.MANAGER)) {
 			throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User must be a manager to access this resource");
 		}
 	}
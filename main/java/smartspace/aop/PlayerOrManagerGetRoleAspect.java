@@ -11,20 +11,25 @@ import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 
 import smartspace.dao.EnhancedUserDao;
-import smartspace.data.UserEntity;
 import smartspace.data.UserKey;
 import smartspace.data.UserRole;
 
 /**
  * The Class PlayerOrManagerGetRoleAspect.
+ * <p>
+ * Runs before LoggerServiceAspect, which tags its metrics with the role
+ * resolved here.
  */
 @Component
 @Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
 public class PlayerOrManagerGetRoleAspect {
 
 	/** The logger. */
@@ -64,13 +69,12 @@ public class PlayerOrManagerGetRoleAspect {
 		logger.debug(
 				"*** Check if the user " + userSmartspace + "#" + userEmail + " is Player or Manager: " + fullMessage);
 
-		Optional<UserEntity> userOp = this.userDao.readById(new UserKey(userSmartspace, userEmail));
-		if (!userOp.isPresent())
+		Optional<UserRole> roleOp = this.userDao.readRoleById(new UserKey(userSmartspace, userEmail));
+		if (!roleOp.isPresent())
 			logger.debug("*** The given user " + userSmartspace + "#" + userEmail + " doesn't exist " + fullMessage);
 
-		UserEntity user = userOp.orElseThrow(
+		role = roleOp.orElseThrow(
 				() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "The given user doesn't exist"));
-		role = user.getRole();
 
 		// check that the user has Player or Manager privileges
 		if (role != UserRole.MANAGER && role != UserRole.PLAYER) {
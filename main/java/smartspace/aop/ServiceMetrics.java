@@ -0,0 +1,169 @@
+package smartspace.aop;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Latency histogram and success/failure counters of the service methods
+ * measured by LoggerServiceAspect, one series per method, operation type and
+ * role.
+ * <p>
+ * Latencies are counted in fixed buckets, recording a call is a few
+ * LongAdder increments and takes no lock. Percentiles are read from the
+ * buckets, so they are the upper bound of the bucket they fall in.
+ */
+@Component
+public class ServiceMetrics {
+	// upper bounds of the latency buckets, the last bucket holds everything slower
+	private static final long[] BUCKET_MILLIS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+	private static final long[] BUCKET_NANOS = new long[BUCKET_MILLIS.length];
+	static {
+		for (int i = 0; i < BUCKET_MILLIS.length; i++) {
+			BUCKET_NANOS[i] = TimeUnit.MILLISECONDS.toNanos(BUCKET_MILLIS[i]);
+		}
+	}
+
+	private Map<SeriesKey, Series> series;
+
+	public ServiceMetrics() {
+		this.series = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Record one call.
+	 *
+	 * @param operation the operation type: import, export, get, register or invoke
+	 * @param role      the role of the caller
+	 * @param method    the service method
+	 * @param nanos     how long the call took
+	 * @param success   whether the call returned normally
+	 */
+	public void record(String operation, String role, String method, long nanos, boolean success) {
+		this.series.computeIfAbsent(new SeriesKey(operation, role, method), Series::new).record(nanos, success);
+	}
+
+	/**
+	 * @return one entry per series, with its counters, latencies and histogram
+	 */
+	public List<Map<String, Object>> getStats() {
+		List<Map<String, Object>> rv = new ArrayList<>();
+		this.series.values().forEach(series -> rv.add(series.getStats()));
+		rv.sort(Comparator.comparing((Map<String, Object> stats) -> (String) stats.get("method"))
+				.thenComparing(stats -> (String) stats.get("role")));
+		return rv;
+	}
+
+	private static class Series {
+		private SeriesKey key;
+		private LongAdder successes;
+		private LongAdder failures;
+		private LongAdder totalNanos;
+		private LongAccumulator maxNanos;
+		private LongAdder[] buckets;
+
+		public Series(SeriesKey key) {
+			this.key = key;
+			this.successes = new LongAdder();
+			this.failures = new LongAdder();
+			this.totalNanos = new LongAdder();
+			this.maxNanos = new LongAccumulator(Math::max, 0);
+			this.buckets = new LongAdder[BUCKET_NANOS.length + 1];
+			for (int i = 0; i < this.buckets.length; i++) {
+				this.buckets[i] = new LongAdder();
+			}
+		}
+
+		public void record(long nanos, boolean success) {
+			(success ? this.successes : this.failures).increment();
+			this.totalNanos.add(nanos);
+			this.maxNanos.accumulate(nanos);
+			this.buckets[bucketOf(nanos)].increment();
+		}
+
+		public Map<String, Object> getStats() {
+			long[] counts = new long[this.buckets.length];
+			long calls = 0;
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = this.buckets[i].sum();
+				calls += counts[i];
+			}
+
+			Map<String, Object> histogram = new LinkedHashMap<>();
+			for (int i = 0; i < counts.length; i++) {
+				histogram.put(i < BUCKET_MILLIS.length ? "le" + BUCKET_MILLIS[i] + "ms" : "slower", counts[i]);
+			}
+
+			Map<String, Object> rv = new LinkedHashMap<>();
+			rv.put("operation", this.key.operation);
+			rv.put("role", this.key.role);
+			rv.put("method", this.key.method);
+			rv.put("successes", this.successes.sum());
+			rv.put("failures", this.failures.sum());
+			rv.put("meanMillis", calls == 0 ? 0.0 : this.totalNanos.sum() / 1_000_000.0 / calls);
+			rv.put("maxMillis", this.maxNanos.get() / 1_000_000.0);
+			rv.put("p50Millis", percentile(counts, calls, 0.50));
+			rv.put("p95Millis", percentile(counts, calls, 0.95));
+			rv.put("p99Millis", percentile(counts, calls, 0.99));
+			rv.put("histogram", histogram);
+			return rv;
+		}
+
+		private long percentile(long[] counts, long calls, double percentile) {
+			long rank = (long) Math.ceil(percentile * calls);
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank && seen > 0) {
+					// the slowest bucket has no upper bound, report the max instead
+					return i < BUCKET_MILLIS.length ? BUCKET_MILLIS[i] : TimeUnit.NANOSECONDS.toMillis(this.maxNanos.get());
+				}
+			}
+			return 0;
+		}
+
+		private static int bucketOf(long nanos) {
+			for (int i = 0; i < BUCKET_NANOS.length; i++) {
+				if (nanos <= BUCKET_NANOS[i]) {
+					return i;
+				}
+			}
+			return BUCKET_NANOS.length;
+		}
+	}
+
+	private static class SeriesKey {
+		private String operation;
+		private String role;
+		private String method;
+
+		public SeriesKey(String operation, String role, String method) {
+			this.operation = operation;
+			this.role = role;
+			this.method = method;
+		}
+
+		@Override
+		public int hashCode() {
+			return (this.operation.hashCode() * 31 + this.role.hashCode()) * 31 + this.method.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SeriesKey)) {
+				return false;
+			}
+			SeriesKey other = (SeriesKey) obj;
+			return this.operation.equals(other.operation) && this.role.equals(other.role)
+					&& this.method.equals(other.method);
+		}
+	}
+}
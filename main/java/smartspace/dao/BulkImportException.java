@@ -0,0 +1,35 @@
+package smartspace.dao;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thrown by a bulk import when some of the entities could not be written. The
+ * other entities of the batch were written.
+ */
+public class BulkImportException extends RuntimeException {
+	private static final long serialVersionUID = -3180446322407734317L;
+
+	private List<?> imported;
+	private Map<Object, String> failures;
+
+	public BulkImportException(List<?> imported, Map<Object, String> failures) {
+		super(failures.size() + " entities could not be imported");
+		this.imported = imported;
+		this.failures = failures;
+	}
+
+	/**
+	 * @return the entities that were written
+	 */
+	public List<?> getImported() {
+		return imported;
+	}
+
+	/**
+	 * @return the reason each key was not written, by key
+	 */
+	public Map<Object, String> getFailures() {
+		return failures;
+	}
+}
@@ -3,9 +3,12 @@
  */
 package smartspace.dao;
 
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 import smartspace.data.ActionEntity;
+import smartspace.data.ActionKey;
 
 /**
  * The Interface EnhancedActionDao.
@@ -31,6 +34,58 @@ public interface EnhancedActionDao extends ActionDao {
 	 */
 	public ActionEntity importAction(ActionEntity action);
 
+	/**
+	 * Import actions with one bulk write.
+	 *
+	 * @param actions the actions, all with a key
+	 * @return the actions
+	 * @throws BulkImportException if some of the actions were not written
+	 */
+	public List<ActionEntity> importActions(List<ActionEntity> actions);
+
 	List<ActionEntity> readAllWithPaging(String sortBy, int size, int page);
 
+	/**
+	 * Read all ordered by key, starting after the given key (keyset paging).
+	 *
+	 * @param after the last key of the previous page, null for the first page
+	 * @param size  the size
+	 * @return the list
+	 */
+	public List<ActionEntity> readAllAfter(ActionKey after, int size);
+
+	/**
+	 * Read all actions with one cursor, without sorting. The stream holds the
+	 * cursor and must be closed.
+	 *
+	 * @param modifiedSince only the actions created or imported at or after this
+	 *                      time, null for all
+	 * @return the actions
+	 */
+	public Stream<ActionEntity> streamAll(Date modifiedSince);
+
+	/**
+	 * Reserve the key of a new action, before the action is created.
+	 *
+	 * @return a key of this smartspace that no other action has
+	 */
+	public ActionKey reserveKey();
+
+	/**
+	 * Create an action with a key from reserveKey.
+	 *
+	 * @param actionEntity the action, with its reserved key
+	 * @return the action entity
+	 */
+	public ActionEntity createWithReservedKey(ActionEntity actionEntity);
+
+	/**
+	 * Create new actions with one bulk insert.
+	 *
+	 * @param actions the actions, each gets a new key
+	 * @return the actions
+	 * @throws BulkImportException if some of the actions were not written
+	 */
+	public List<ActionEntity> createAll(List<ActionEntity> actions);
+
 }
@@ -3,7 +3,12 @@
  */
 package smartspace.dao;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import smartspace.data.ElementEntity;
 
@@ -32,6 +37,62 @@ public interface EnhancedElementDao<ElementKey> extends ElementDao<ElementKey> {
 	 */
 	public ElementEntity importElement(ElementEntity element);
 
+	/**
+	 * Import elements with one bulk write.
+	 *
+	 * @param elements the elements, all with a key
+	 * @return the elements
+	 * @throws BulkImportException if some of the elements were not written
+	 */
+	public List<ElementEntity> importElements(List<ElementEntity> elements);
+
+	/**
+	 * Find which of the given keys exist, with one query.
+	 *
+	 * @param keys the keys
+	 * @return the keys that exist
+	 */
+	public Set<ElementKey> readExistingKeys(Collection<ElementKey> keys);
+
+	/**
+	 * Read the elements of the given keys with one query.
+	 *
+	 * @param keys the keys
+	 * @return the elements that exist, by key
+	 */
+	public Map<ElementKey, ElementEntity> readAllById(Collection<ElementKey> keys);
+
+	/**
+	 * Set one attribute of an element with one $set, the other fields and
+	 * attributes are not written.
+	 *
+	 * @param key       the key of the element
+	 * @param attribute the name of the attribute
+	 * @param value     the value
+	 */
+	public void setAttribute(ElementKey key, String attribute, Object value);
+
+	/**
+	 * Add a value to an array attribute of an element, unless it is already
+	 * there, with one atomic update. An element without attributes gets an
+	 * array of this value.
+	 *
+	 * @param key       the key of the element
+	 * @param attribute the name of the attribute
+	 * @param value     the value
+	 */
+	public void addToAttributeSet(ElementKey key, String attribute, Object value);
+
+	/**
+	 * Remove every occurrence of a value from an array attribute of an element,
+	 * with one atomic update.
+	 *
+	 * @param key       the key of the element
+	 * @param attribute the name of the attribute
+	 * @param value     the value
+	 */
+	public void removeFromAttributeSet(ElementKey key, String attribute, Object value);
+
 	List<ElementEntity> readAllWithPaging(String sortBy, int size, int page);
 
 	
@@ -59,12 +120,53 @@ public interface EnhancedElementDao<ElementKey> extends ElementDao<ElementKey> {
 
 	// search by location
 	public List<ElementEntity> searchByLocation(boolean includeExpired, Double x, Double y, Double distance, int size, int page);
+
+	/**
+	 * Read all ordered by key, starting after the given key (keyset paging).
+	 *
+	 * @param after the last key of the previous page, null for the first page
+	 * @param size  the size
+	 * @return the list
+	 */
+	public List<ElementEntity> readAllAfter(ElementKey after, int size);
+
+	/**
+	 * Read all elements with one cursor, without sorting. The stream holds the
+	 * cursor and must be closed.
+	 *
+	 * @param modifiedSince only the elements written at or after this time, null for all
+	 * @return the elements
+	 */
+	public Stream<ElementEntity> streamAll(Date modifiedSince);
+
+	/**
+	 * Read all ordered by key, starting after the given key (keyset paging).
+	 *
+	 * @param showExpired the show expired
+	 * @param after       the last key of the previous page, null for the first page
+	 * @param size        the size
+	 * @return the list
+	 */
+	public List<ElementEntity> readAllUsingKeyset(boolean showExpired, ElementKey after, int size);
+
+	/**
+	 * Read all with same values ordered by key, starting after the given key
+	 * (keyset paging).
+	 *
+	 * @param showExpired the show expired
+	 * @param searchBy    the search by
+	 * @param value       the value
+	 * @param after       the last key of the previous page, null for the first page
+	 * @param size        the size
+	 * @return the list
+	 */
+	public List<ElementEntity> readAllWithSameValuesUsingKeyset(boolean showExpired, String searchBy, String value, ElementKey after, int size);
+
+	// search by location, ordered by key, starting after the given key (keyset paging)
+	public List<ElementEntity> searchByLocationUsingKeyset(boolean includeExpired, Double x, Double y, Double distance, ElementKey after, int size);
 	
-	// get manager's lists
-	public List<ElementEntity> readAllListsByCreator(String creatorSmartspace, String creatorEmail, int size, int page);
-	
-	// get user's lists
-	public List<ElementEntity> readAllListsByMember(String userSmartspace, String userEmail, int size, int page);
+	// get the lists the user created or is a member of, ordered by creation
+	public List<ElementEntity> readAllListsByCreatorOrMember(String userSmartspace, String userEmail, int size, int page);
 
 	// get list's items
 	public List<ElementEntity> readAllItemsByShoppingList(String smartspcae, String id, int size, int page);
@@ -3,10 +3,15 @@
  */
 package smartspace.dao;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import smartspace.data.UserEntity;
 import smartspace.data.UserKey;
+import smartspace.data.UserRole;
 
 /**
  * The Interface EnhancedUserDao.
@@ -26,6 +31,39 @@ public interface EnhancedUserDao<UserKey> extends UserDao<UserKey> {
 	public List<UserEntity> readAllWithPaging(int size, int page);
 	
 	public List<UserEntity> readAllWithPaging(String sortBy,int size, int page);
+
+	/**
+	 * Read all ordered by key, starting after the given key (keyset paging).
+	 *
+	 * @param after the last key of the previous page, null for the first page
+	 * @param size  the size
+	 * @return the list
+	 */
+	public List<UserEntity> readAllAfter(UserKey after, int size);
+
+	/**
+	 * Read all users with one cursor, without sorting. The stream holds the
+	 * cursor and must be closed.
+	 *
+	 * @param modifiedSince only the users written at or after this time, null for all
+	 * @return the users
+	 */
+	public Stream<UserEntity> streamAll(Date modifiedSince);
+
+	/**
+	 * Read the role of a user, from the identity cache when it is there.
+	 *
+	 * @param userKey the user key
+	 * @return the role, empty if the user doesn't exist
+	 */
+	public Optional<UserRole> readRoleById(UserKey userKey);
+
+	/**
+	 * Read the size and hit/miss counters of the identity cache.
+	 *
+	 * @return the counters by name
+	 */
+	public Map<String, Object> readIdentityCacheStats();
 	
 
 	/**
@@ -36,5 +74,25 @@ public interface EnhancedUserDao<UserKey> extends UserDao<UserKey> {
 	 */
 	public UserEntity importUser(UserEntity user);
 
+	/**
+	 * Import users with one bulk write.
+	 *
+	 * @param users the users, all with a key
+	 * @return the users
+	 * @throws BulkImportException if some of the users were not written
+	 */
+	public List<UserEntity> importUsers(List<UserEntity> users);
+
 	public void addPoints(UserEntity update);
+
+	/**
+	 * Add points to a user with one atomic $inc, concurrent increments are
+	 * all counted.
+	 *
+	 * @param userKey the user key
+	 * @param points  the points to add, negative to take points
+	 * @return the points of the user after the increment, empty if the user
+	 *         doesn't exist
+	 */
+	public Optional<Long> incrementPoints(UserKey userKey, long points);
 }
@@ -0,0 +1,238 @@
+package smartspace.dao.rdb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.bulk.BulkWriteError;
+
+import smartspace.data.ActionEntity;
+
+/**
+ * Group commit for new actions: actions appended by concurrent requests are
+ * queued and written together with one unordered insertMany, when batchSize
+ * actions are waiting or flushMillis after the first one, whichever comes
+ * first. Every caller waits until the batch holding its action was
+ * acknowledged, and gets the error of its own action only.
+ * <p>
+ * When disabled, stopped, or when the queue is full, the action is inserted by
+ * the calling thread. Stopping writes the queued actions before it returns.
+ */
+@Component
+public class ActionAppendWriter {
+	// MongoDB error code of a duplicate key
+	static final int DUPLICATE_KEY = 11000;
+
+	private Log logger = LogFactory.getLog(ActionAppendWriter.class);
+
+	private MongoOperations mongoOperations;
+
+	private boolean enabled;
+	private long flushMillis;
+	private int batchSize;
+	private int queueCapacity;
+	private long timeoutMillis;
+
+	private BlockingQueue<PendingAction> queue;
+	private Thread flusher;
+	private volatile boolean running;
+	// held to queue an action and to stop, no action is queued once stopped
+	private final Object queueLock = new Object();
+
+	@Autowired
+	public ActionAppendWriter(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	@Value("${smartspace.actions.writer.enabled:true}")
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Value("${smartspace.actions.writer.flushMillis:2}")
+	public void setFlushMillis(long flushMillis) {
+		this.flushMillis = flushMillis;
+	}
+
+	@Value("${smartspace.actions.writer.batchSize:200}")
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	@Value("${smartspace.actions.writer.queueCapacity:10000}")
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	@Value("${smartspace.actions.writer.timeoutMillis:30000}")
+	public void setTimeoutMillis(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	@PostConstruct
+	public void start() {
+		if (!this.enabled) {
+			return;
+		}
+
+		this.queue = new ArrayBlockingQueue<>(this.queueCapacity);
+		this.running = true;
+		this.flusher = new Thread(this::run, "action-append-writer");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		if (this.flusher != null) {
+			// the queued actions are still written
+			stopQueueing();
+			this.flusher.join(TimeUnit.SECONDS.toMillis(10));
+
+			// the flusher didn't finish in time, the rest is written (or failed) here
+			List<PendingAction> left = new ArrayList<>();
+			this.queue.drainTo(left);
+			if (!left.isEmpty()) {
+				flush(left);
+			}
+		}
+	}
+
+	private void stopQueueing() {
+		synchronized (this.queueLock) {
+			this.running = false;
+		}
+	}
+
+	/**
+	 * Insert a new action and wait until it was written.
+	 *
+	 * @param action the action, with its key
+	 * @return the action
+	 * @throws DuplicateKeyException if an action with the same key exists
+	 * @throws RuntimeException      if the action was not acknowledged within
+	 *                               timeoutMillis, it may still be written
+	 */
+	public ActionEntity append(ActionEntity action) {
+		PendingAction pending = new PendingAction(action);
+		boolean queued;
+		synchronized (this.queueLock) {
+			queued = this.running && this.queue.offer(pending);
+		}
+		if (!queued) {
+			return this.mongoOperations.insert(action);
+		}
+
+		try {
+			return pending.written.get(this.timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("interrupted while writing action " + action.getKey(), e);
+		} catch (TimeoutException e) {
+			throw new RuntimeException("timed out writing action " + action.getKey(), e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private void run() {
+		List<PendingAction> batch = new ArrayList<>(this.batchSize);
+
+		while (this.running || !this.queue.isEmpty()) {
+			try {
+				PendingAction first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+
+				// whatever is waiting, then more until the batch is full, flushMillis
+				// passed or the writer is stopping
+				this.queue.drainTo(batch, this.batchSize - batch.size());
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.flushMillis);
+				while (batch.size() < this.batchSize && this.running) {
+					long wait = Math.min(deadline - System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(100));
+					if (wait <= 0) {
+						break;
+					}
+					PendingAction next = this.queue.poll(wait, TimeUnit.NANOSECONDS);
+					if (next != null) {
+						batch.add(next);
+						this.queue.drainTo(batch, this.batchSize - batch.size());
+					}
+				}
+			} catch (InterruptedException e) {
+				stopQueueing();
+			}
+
+			if (!batch.isEmpty()) {
+				flush(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	private void flush(List<PendingAction> batch) {
+		List<ActionEntity> actions = new ArrayList<>(batch.size());
+		batch.forEach(pending -> actions.add(pending.action));
+
+		Map<Integer, RuntimeException> failures = Collections.emptyMap();
+		try {
+			this.mongoOperations.bulkOps(BulkMode.UNORDERED, ActionEntity.class).insert(actions).execute();
+		} catch (BulkOperationException e) {
+			failures = new HashMap<>();
+			for (BulkWriteError error : e.getErrors()) {
+				failures.put(error.getIndex(), error.getCode() == DUPLICATE_KEY
+						? new DuplicateKeyException(error.getMessage())
+						: new RuntimeException(error.getMessage()));
+			}
+		} catch (RuntimeException e) {
+			logger.warn("could not write " + batch.size() + " actions: " + e.getMessage());
+			batch.forEach(pending -> pending.written.completeExceptionally(e));
+			return;
+		}
+
+		for (int i = 0; i < batch.size(); i++) {
+			PendingAction pending = batch.get(i);
+			if (failures.containsKey(i)) {
+				pending.written.completeExceptionally(failures.get(i));
+			} else {
+				pending.written.complete(pending.action);
+			}
+		}
+	}
+
+	private static class PendingAction {
+		private ActionEntity action;
+		private CompletableFuture<ActionEntity> written;
+
+		public PendingAction(ActionEntity action) {
+			this.action = action;
+			this.written = new CompletableFuture<>();
+		}
+	}
+}
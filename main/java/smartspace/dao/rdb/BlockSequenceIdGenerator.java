@@ -0,0 +1,102 @@
+package smartspace.dao.rdb;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out ids from blocks reserved in the database_sequences collection
+ * (hi/lo). Every block is reserved with one atomic $inc, so nodes sharing the
+ * same sequence never receive the same id and only pay a round trip once per
+ * block.
+ */
+@Component
+@ConditionalOnProperty(name = "smartspace.ids.strategy", havingValue = "sequence", matchIfMissing = true)
+public class BlockSequenceIdGenerator implements IdGenerator {
+	private MongoOperations mongoOperations;
+	private int blockSize;
+
+	/** The block currently handed out per sequence. */
+	private Map<String, SequenceBlock> blocks;
+
+	@Autowired
+	public BlockSequenceIdGenerator(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+		this.blocks = new ConcurrentHashMap<>();
+	}
+
+	@Value("${smartspace.sequence.blockSize:50}")
+	public void setBlockSize(int blockSize) {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("sequence block size must be positive: " + blockSize);
+		}
+		this.blockSize = blockSize;
+	}
+
+	@Override
+	public long nextId(String sequenceName) {
+		SequenceBlock block = this.blocks.computeIfAbsent(sequenceName, name -> new SequenceBlock());
+
+		// a lock rather than synchronized, a virtual thread waiting on MongoDB here must not pin its carrier
+		block.lock.lock();
+		try {
+			if (!block.hasNext()) {
+				long hi = reserveBlock(sequenceName);
+				block.reset(hi - this.blockSize + 1, hi);
+			}
+			return block.next();
+		} finally {
+			block.lock.unlock();
+		}
+	}
+
+	/**
+	 * Atomically moves the sequence forward by a whole block.
+	 *
+	 * @param sequenceName the sequence name
+	 * @return the last id of the reserved block
+	 */
+	private long reserveBlock(String sequenceName) {
+		GenericIdGenerator sequence = this.mongoOperations.findAndModify(
+				new Query(Criteria.where("_id").is(sequenceName)),
+				new Update().inc("sequenceValue", this.blockSize),
+				FindAndModifyOptions.options().returnNew(true).upsert(true),
+				GenericIdGenerator.class);
+
+		return sequence.getSequenceValue();
+	}
+
+	private static class SequenceBlock {
+		private final ReentrantLock lock = new ReentrantLock();
+		private long next;
+		private long last;
+
+		public SequenceBlock() {
+			this.next = 1;
+			this.last = 0;
+		}
+
+		public boolean hasNext() {
+			return this.next <= this.last;
+		}
+
+		public long next() {
+			return this.next++;
+		}
+
+		public void reset(long first, long last) {
+			this.next = first;
+			this.last = last;
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package smartspace.dao.rdb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+
+import smartspace.dao.BulkImportException;
+
+/**
+ * Writes a batch of entities with one unordered bulkWrite of replaces by key
+ * or of inserts, instead of a save per entity.
+ */
+class BulkUpsert {
+	private BulkUpsert() {
+	}
+
+	/**
+	 * Replace all entities by key, creating the missing ones, like save(). Every
+	 * entity is written even if others fail.
+	 *
+	 * @param mongoOperations the mongo operations
+	 * @param type            the entity type
+	 * @param entities        the entities, all with a key
+	 * @param key             the key of an entity
+	 * @return the entities
+	 * @throws BulkImportException if some entities were not written
+	 */
+	static <T> List<T> upsertAll(MongoOperations mongoOperations, Class<T> type, List<T> entities,
+			Function<T, Object> key) {
+		if (entities.isEmpty()) {
+			return entities;
+		}
+
+		List<WriteModel<Document>> replaces = new ArrayList<>();
+		for (T entity : entities) {
+			Document document = new Document();
+			mongoOperations.getConverter().write(entity, document);
+
+			// the stored document is replaced as a whole, fields missing from the entity don't survive
+			replaces.add(new ReplaceOneModel<>(new Document("_id", document.get("_id")), document,
+					new ReplaceOptions().upsert(true)));
+		}
+
+		// BulkOperations has no replaceOne here, the driver bulkWrite is used directly
+		List<BulkWriteError> errors = mongoOperations.execute(type, collection -> {
+			try {
+				collection.bulkWrite(replaces, new BulkWriteOptions().ordered(false));
+				return Collections.<BulkWriteError>emptyList();
+			} catch (MongoBulkWriteException e) {
+				return e.getWriteErrors();
+			}
+		});
+		if (!errors.isEmpty()) {
+			throw failed(errors, entities, key);
+		}
+		return entities;
+	}
+
+	/**
+	 * Insert all new entities. Every entity is written even if others fail.
+	 *
+	 * @param mongoOperations the mongo operations
+	 * @param type            the entity type
+	 * @param entities        the entities, all with a new key
+	 * @param key             the key of an entity
+	 * @return the entities
+	 * @throws BulkImportException if some entities were not written
+	 */
+	static <T> List<T> insertAll(MongoOperations mongoOperations, Class<T> type, List<T> entities,
+			Function<T, Object> key) {
+		if (entities.isEmpty()) {
+			return entities;
+		}
+
+		return execute(mongoOperations.bulkOps(BulkMode.UNORDERED, type).insert(entities), entities, key);
+	}
+
+	private static <T> List<T> execute(BulkOperations bulk, List<T> entities, Function<T, Object> key) {
+		try {
+			bulk.execute();
+			return entities;
+		} catch (BulkOperationException e) {
+			throw failed(e.getErrors(), entities, key);
+		}
+	}
+
+	private static <T> BulkImportException failed(List<BulkWriteError> errors, List<T> entities,
+			Function<T, Object> key) {
+		Map<Object, String> failures = new LinkedHashMap<>();
+		Set<Integer> failed = new HashSet<>();
+		for (BulkWriteError error : errors) {
+			failed.add(error.getIndex());
+			failures.put(key.apply(entities.get(error.getIndex())), error.getMessage());
+		}
+
+		List<T> written = new ArrayList<>();
+		for (int i = 0; i < entities.size(); i++) {
+			if (!failed.contains(i)) {
+				written.add(entities.get(i));
+			}
+		}
+		return new BulkImportException(written, failures);
+	}
+}
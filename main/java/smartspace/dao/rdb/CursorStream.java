@@ -0,0 +1,42 @@
+package smartspace.dao.rdb;
+
+import java.util.Date;
+import java.util.stream.Stream;
+
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.StreamUtils;
+
+/**
+ * Reads a whole collection for an export with one cursor, without sorting.
+ * The driver reads the cursor in batches, nothing else is kept. The stream
+ * holds the cursor and must be closed.
+ */
+class CursorStream {
+	private CursorStream() {
+	}
+
+	/**
+	 * Stream the entities written at or after a time. The ones written before
+	 * lastModified was kept have none, they may have changed and are streamed
+	 * too.
+	 *
+	 * @param mongoOperations the mongo operations
+	 * @param type            the entity type
+	 * @param modifiedSince   the time, null for all
+	 * @return the entities
+	 */
+	static <T> Stream<T> modifiedSince(MongoOperations mongoOperations, Class<T> type, Date modifiedSince) {
+		Query query = new Query();
+		if (modifiedSince != null) {
+			query.addCriteria(new Criteria().orOperator(Criteria.where("lastModified").gte(modifiedSince),
+					Criteria.where("lastModified").exists(false)));
+		}
+		return stream(mongoOperations, type, query);
+	}
+
+	private static <T> Stream<T> stream(MongoOperations mongoOperations, Class<T> type, Query query) {
+		return StreamUtils.createStreamFromIterator(mongoOperations.stream(query, type));
+	}
+}
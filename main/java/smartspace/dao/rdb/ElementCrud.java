@@ -65,24 +65,6 @@ public interface ElementCrud extends
 	 */
 	public List<ElementEntity> findAllByTypeAndExpired(String type, boolean expired, Pageable pageable);
 
-	// TODO: change to radius search
-	// search by location manager - include expired
-	public List<ElementEntity> findAllByLocation_XBetweenAndLocation_YBetween(Double xMin, Double xMax, Double yMin,
-			Double yMax, Pageable pageable);
-
-	// TODO: change to radius search
-	// search by location player - only expired = false
-	public List<ElementEntity> findAllByExpiredFalseAndLocation_XBetweenAndLocation_YBetween(Double xMin, Double xMax,
-			Double yMin, Double yMax, Pageable pageable);
-
-	// find elements by creator and type
-	public List<ElementEntity> findAllByCreatorSmartspaceAndCreatorEmailAndType(String smartspace, String email,
-			String elementType, Pageable pageable);
-
-	// find all shopping lists where moreAttributes.members contains user with {smartspace, email}
-	@Query("{ 'moreAttributes.members': {'userSmartspace': ?0, 'userEmail': ?1}, 'type': ?2 }")
-	public List<ElementEntity> findShoppingListsByUser(String smartspace, String email, String elementType, Pageable pageable);
-	
 	// find all items in list
 	@Query("{ 'moreAttributes.listKey.smartspace': ?0, 'moreAttributes.listKey.id': ?1, 'type': ?2 }")
 	public List<ElementEntity> findItemsByShoppingList(String listSmartspace, String listId, String elementType, Pageable pageable);
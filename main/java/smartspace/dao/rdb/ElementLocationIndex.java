@@ -0,0 +1,487 @@
+package smartspace.dao.rdb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import smartspace.data.ElementEntity;
+import smartspace.data.ElementKey;
+import smartspace.data.Location;
+
+/**
+ * In memory grid index of the element locations, split by the expired flag,
+ * used to answer location searches without querying the database.
+ * <p>
+ * It answers exactly what the 2dsphere query of RdbElementDao answers: the
+ * distance is measured on the sphere ({@link Location#angularDistance}), and
+ * elements whose location is not a valid lat/lng are not indexed, like the
+ * documents without location.point.
+ * <p>
+ * The index is built from a streaming cursor after startup and rebuilt every
+ * refreshSeconds to pick up changes made by other instances. Changes made
+ * through RdbElementDao are applied right away, and RdbElementDao checks the
+ * elements it reads for a search again and corrects the ones it finds stale. Until the first build
+ * finished, or after the index outgrew maxEntries, {@link #search} returns
+ * empty and callers query the database instead.
+ */
+@Component
+public class ElementLocationIndex {
+	private Log logger = LogFactory.getLog(ElementLocationIndex.class);
+
+	private MongoOperations mongoOperations;
+
+	private volatile boolean enabled;
+	private double cellSize;
+	private long maxEntries;
+	private long refreshSeconds;
+
+	private ReentrantReadWriteLock lock;
+
+	/** The index searches run on, null until built or when disabled. */
+	private Snapshot snapshot;
+
+	/** The changes made while a build is running, replayed on the new snapshot. */
+	private List<Consumer<Snapshot>> journal;
+
+	private ScheduledExecutorService builder;
+
+	@Autowired
+	public ElementLocationIndex(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+		this.lock = new ReentrantReadWriteLock();
+	}
+
+	@Value("${smartspace.elements.locationIndex.enabled:true}")
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Value("${smartspace.elements.locationIndex.cellSize:1.0}")
+	public void setCellSize(double cellSize) {
+		this.cellSize = cellSize;
+	}
+
+	@Value("${smartspace.elements.locationIndex.maxEntries:1000000}")
+	public void setMaxEntries(long maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	@Value("${smartspace.elements.locationIndex.refreshSeconds:300}")
+	public void setRefreshSeconds(long refreshSeconds) {
+		this.refreshSeconds = refreshSeconds;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (!this.enabled) {
+			return;
+		}
+
+		this.builder = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "element-location-index");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		this.builder.execute(this::rebuild);
+		if (this.refreshSeconds > 0) {
+			this.builder.scheduleWithFixedDelay(this::rebuild, this.refreshSeconds, this.refreshSeconds,
+					TimeUnit.SECONDS);
+		}
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (this.builder != null) {
+			this.builder.shutdownNow();
+		}
+	}
+
+	/**
+	 * Rebuild the index from the ELEMENTS collection.
+	 */
+	public void rebuild() {
+		// only the fields the index needs
+		Query query = new Query();
+		query.fields().include("elementSmartspace").include("elementId").include("location.x")
+				.include("location.y").include("expired");
+
+		try (CloseableIterator<ElementEntity> cursor = this.mongoOperations.stream(query, ElementEntity.class)) {
+			load(cursor);
+		} catch (Exception e) {
+			logger.warn("could not build the element location index: " + e.getMessage());
+			this.lock.writeLock().lock();
+			try {
+				this.journal = null;
+			} finally {
+				this.lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Build a new snapshot from the given elements and swap it in.
+	 *
+	 * @param elements the elements
+	 */
+	void load(Iterator<ElementEntity> elements) {
+		this.lock.writeLock().lock();
+		try {
+			this.journal = new ArrayList<>();
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+
+		Snapshot fresh = new Snapshot(this.cellSize);
+		while (elements.hasNext()) {
+			ElementEntity element = elements.next();
+			fresh.put(element.getKey(), element.getLocation(), element.getExpired());
+
+			if (fresh.size() > this.maxEntries) {
+				disable(fresh.size());
+				return;
+			}
+		}
+
+		this.lock.writeLock().lock();
+		try {
+			if (this.journal == null) {
+				// disabled while building
+				return;
+			}
+			this.journal.forEach(change -> change.accept(fresh));
+			this.journal = null;
+			this.snapshot = fresh;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+
+		logger.debug("element location index built with " + fresh.size() + " elements");
+	}
+
+	/**
+	 * Add or move an element.
+	 *
+	 * @param element the element
+	 */
+	public void put(ElementEntity element) {
+		ElementKey key = element.getKey();
+		Location location = element.getLocation();
+		boolean expired = element.getExpired();
+
+		apply(snapshot -> snapshot.put(key, location, expired));
+	}
+
+	/**
+	 * Apply an update of an element.
+	 *
+	 * @param key      the key
+	 * @param location the new location, null if it didn't change
+	 * @param expired  the expired
+	 */
+	public void update(ElementKey key, Location location, boolean expired) {
+		if (location != null) {
+			apply(snapshot -> snapshot.put(key, location, expired));
+		} else {
+			apply(snapshot -> snapshot.setExpired(key, expired));
+		}
+	}
+
+	/**
+	 * Remove an element.
+	 *
+	 * @param key the key
+	 */
+	public void remove(ElementKey key) {
+		apply(snapshot -> snapshot.remove(key));
+	}
+
+	/**
+	 * Remove all elements.
+	 */
+	public void clear() {
+		apply(Snapshot::clear);
+	}
+
+	/**
+	 * Search the keys of the elements within distance of (x, y), ordered by key.
+	 *
+	 * @param includeExpired the include expired
+	 * @param x              the x
+	 * @param y              the y
+	 * @param distance       the distance
+	 * @param size           the size
+	 * @param page           the page
+	 * @return the keys of the requested page, or empty if the index is not ready
+	 */
+	public Optional<List<ElementKey>> search(boolean includeExpired, double x, double y, double distance, int size,
+			int page) {
+		return searchSorted(includeExpired, x, y, distance).map(found -> {
+			int from = (int) Math.min((long) page * size, found.size());
+			int to = (int) Math.min((long) from + size, found.size());
+			return new ArrayList<>(found.subList(from, to));
+		});
+	}
+
+	/**
+	 * Search the keys of the elements within distance of (x, y), ordered by key,
+	 * starting after the given key.
+	 *
+	 * @param includeExpired the include expired
+	 * @param x              the x
+	 * @param y              the y
+	 * @param distance       the distance
+	 * @param after          the last key of the previous page, null for the first page
+	 * @param size           the size
+	 * @return the keys of the requested page, or empty if the index is not ready
+	 */
+	public Optional<List<ElementKey>> searchAfter(boolean includeExpired, double x, double y, double distance,
+			ElementKey after, int size) {
+		return searchSorted(includeExpired, x, y, distance).map(found -> {
+			int from = 0;
+			if (after != null) {
+				// index of the first key greater than after
+				int position = Collections.binarySearch(found, after);
+				from = position >= 0 ? position + 1 : -position - 1;
+			}
+			int to = (int) Math.min((long) from + size, found.size());
+			return new ArrayList<>(found.subList(from, to));
+		});
+	}
+
+	private Optional<List<ElementKey>> searchSorted(boolean includeExpired, double x, double y, double distance) {
+		List<ElementKey> found;
+
+		this.lock.readLock().lock();
+		try {
+			if (this.snapshot == null) {
+				return Optional.empty();
+			}
+			found = this.snapshot.search(includeExpired, x, y, distance);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+
+		Collections.sort(found);
+		return Optional.of(found);
+	}
+
+	private void apply(Consumer<Snapshot> change) {
+		if (!this.enabled) {
+			return;
+		}
+
+		this.lock.writeLock().lock();
+		try {
+			if (this.snapshot != null) {
+				change.accept(this.snapshot);
+			}
+			if (this.journal != null) {
+				this.journal.add(change);
+			}
+			if (this.snapshot != null && this.snapshot.size() > this.maxEntries) {
+				disable(this.snapshot.size());
+			}
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	private void disable(long size) {
+		this.lock.writeLock().lock();
+		try {
+			this.enabled = false;
+			this.snapshot = null;
+			this.journal = null;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+
+		stop();
+		logger.warn("element location index disabled, " + size + " elements are over the budget of "
+				+ this.maxEntries + ", location search uses the database");
+	}
+
+	private static class Entry {
+		private Location location;
+		private boolean expired;
+		private long cell;
+
+		public Entry(Location location, boolean expired, long cell) {
+			this.location = location;
+			this.expired = expired;
+			this.cell = cell;
+		}
+	}
+
+	private static class Snapshot {
+		private double cellSize;
+		private Map<ElementKey, Entry> entries;
+		private Map<Long, Set<ElementKey>> activeCells;
+		private Map<Long, Set<ElementKey>> expiredCells;
+
+		public Snapshot(double cellSize) {
+			this.cellSize = cellSize;
+			this.entries = new HashMap<>();
+			this.activeCells = new HashMap<>();
+			this.expiredCells = new HashMap<>();
+		}
+
+		public int size() {
+			return this.entries.size();
+		}
+
+		public void put(ElementKey key, Location location, boolean expired) {
+			remove(key);
+
+			// elements without a valid location are never found by a location search
+			if (key == null || location == null || !location.isValid()) {
+				return;
+			}
+
+			long cell = cellOf(cellIndex(location.getX()), cellIndex(location.getY()));
+			this.entries.put(key, new Entry(new Location(location.getX(), location.getY()), expired, cell));
+			cells(expired).computeIfAbsent(cell, c -> new HashSet<>()).add(key);
+		}
+
+		public void remove(ElementKey key) {
+			Entry entry = this.entries.remove(key);
+			if (entry == null) {
+				return;
+			}
+
+			Map<Long, Set<ElementKey>> cells = cells(entry.expired);
+			Set<ElementKey> keys = cells.get(entry.cell);
+			keys.remove(key);
+			if (keys.isEmpty()) {
+				cells.remove(entry.cell);
+			}
+		}
+
+		public void setExpired(ElementKey key, boolean expired) {
+			Entry entry = this.entries.get(key);
+			if (entry != null && entry.expired != expired) {
+				put(key, entry.location, expired);
+			}
+		}
+
+		public void clear() {
+			this.entries.clear();
+			this.activeCells.clear();
+			this.expiredCells.clear();
+		}
+
+		public List<ElementKey> search(boolean includeExpired, double x, double y, double distance) {
+			List<ElementKey> rv = new ArrayList<>();
+
+			collect(this.activeCells, x, y, distance, rv);
+			if (includeExpired) {
+				collect(this.expiredCells, x, y, distance, rv);
+			}
+			return rv;
+		}
+
+		private void collect(Map<Long, Set<ElementKey>> cells, double x, double y, double distance,
+				List<ElementKey> rv) {
+			// the cells of the latitudes and longitudes the circle on the sphere can reach
+			int minX = cellIndex(Math.max(x - distance, -90));
+			int maxX = cellIndex(Math.min(x + distance, 90));
+			List<int[]> yRanges = new ArrayList<>();
+			double span = longitudeSpan(x, distance);
+			if (span >= 180) {
+				yRanges.add(new int[] { cellIndex(-180), cellIndex(180) });
+			} else {
+				double minY = y - span;
+				double maxY = y + span;
+				yRanges.add(new int[] { cellIndex(Math.max(minY, -180)), cellIndex(Math.min(maxY, 180)) });
+				// the circle crosses the antimeridian
+				if (minY < -180) {
+					yRanges.add(new int[] { cellIndex(minY + 360), cellIndex(180) });
+				}
+				if (maxY > 180) {
+					yRanges.add(new int[] { cellIndex(-180), cellIndex(maxY - 360) });
+				}
+			}
+
+			// visit the cells around the circle, or all occupied cells if there are fewer
+			double cellsInRange = 0;
+			for (int[] range : yRanges) {
+				cellsInRange += ((double) maxX - minX + 1) * ((double) range[1] - range[0] + 1);
+			}
+			if (cellsInRange > cells.size()) {
+				cells.values().forEach(keys -> filter(keys, x, y, distance, rv));
+				return;
+			}
+
+			Set<Long> visited = new HashSet<>();
+			for (int[] range : yRanges) {
+				for (int cx = minX; cx <= maxX; cx++) {
+					for (int cy = range[0]; cy <= range[1]; cy++) {
+						long cell = cellOf(cx, cy);
+						Set<ElementKey> keys = cells.get(cell);
+						if (keys != null && visited.add(cell)) {
+							filter(keys, x, y, distance, rv);
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * @return the most longitude degrees between the center and a point of
+		 *         the circle, 180 if the circle reaches a pole
+		 */
+		private static double longitudeSpan(double lat, double distance) {
+			if (distance >= 90 || Math.abs(lat) + distance >= 90) {
+				return 180;
+			}
+			double sin = Math.sin(Math.toRadians(distance)) / Math.cos(Math.toRadians(lat));
+			return sin >= 1 ? 180 : Math.toDegrees(Math.asin(sin));
+		}
+
+		private void filter(Set<ElementKey> keys, double x, double y, double distance, List<ElementKey> rv) {
+			for (ElementKey key : keys) {
+				if (this.entries.get(key).location.angularDistance(x, y) <= distance) {
+					rv.add(key);
+				}
+			}
+		}
+
+		private Map<Long, Set<ElementKey>> cells(boolean expired) {
+			return expired ? this.expiredCells : this.activeCells;
+		}
+
+		private int cellIndex(double coordinate) {
+			double index = Math.floor(coordinate / this.cellSize);
+			return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, index));
+		}
+
+		private static long cellOf(int cx, int cy) {
+			return ((long) cx << 32) | (cy & 0xffffffffL);
+		}
+	}
+}
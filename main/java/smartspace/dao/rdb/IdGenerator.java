@@ -0,0 +1,15 @@
+package smartspace.dao.rdb;
+
+/**
+ * The strategy RdbSequenceDao uses to produce entity ids.
+ */
+public interface IdGenerator {
+
+	/**
+	 * Next id.
+	 *
+	 * @param sequenceName the sequence name
+	 * @return a positive id that was never returned before for this sequence
+	 */
+	public long nextId(String sequenceName);
+}
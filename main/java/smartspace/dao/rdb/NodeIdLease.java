@@ -0,0 +1,143 @@
+package smartspace.dao.rdb;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Leases one of the {@link #MAX_NODES} node ids through the node_leases
+ * collection and keeps renewing it in the background. A node id is only
+ * handed to another instance after its lease expired, so two running
+ * instances never share one.
+ */
+@Component
+@ConditionalOnProperty(name = "smartspace.ids.strategy", havingValue = "timeOrdered")
+public class NodeIdLease {
+	public static final int MAX_NODES = 1024;
+
+	private Log logger = LogFactory.getLog(NodeIdLease.class);
+
+	private MongoOperations mongoOperations;
+	private long leaseMillis;
+	private String owner;
+	private ScheduledExecutorService renewer;
+
+	private volatile int nodeId;
+	private volatile long validUntil;
+
+	@Autowired
+	public NodeIdLease(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+		this.owner = UUID.randomUUID().toString();
+		this.nodeId = -1;
+	}
+
+	@Value("${smartspace.ids.leaseSeconds:60}")
+	public void setLeaseSeconds(long leaseSeconds) {
+		this.leaseMillis = TimeUnit.SECONDS.toMillis(leaseSeconds);
+	}
+
+	@PostConstruct
+	public void init() {
+		acquire();
+
+		this.renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "node-id-lease");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		// renew well before the lease runs out
+		long period = Math.max(1, this.leaseMillis / 3);
+		this.renewer.scheduleAtFixedRate(this::renew, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void release() {
+		if (this.renewer != null) {
+			this.renewer.shutdownNow();
+		}
+		this.mongoOperations.remove(
+				new Query(Criteria.where("_id").is(this.nodeId).and("owner").is(this.owner)), NodeLease.class);
+	}
+
+	/**
+	 * Current node id.
+	 *
+	 * @return the leased node id
+	 * @throws IllegalStateException if the lease could not be renewed in time
+	 */
+	public int currentNodeId() {
+		if (System.currentTimeMillis() >= this.validUntil) {
+			throw new IllegalStateException("node id lease expired");
+		}
+		return this.nodeId;
+	}
+
+	private void acquire() {
+		for (int candidate = 0; candidate < MAX_NODES; candidate++) {
+			long now = System.currentTimeMillis();
+
+			// take the candidate if it was never leased or its lease expired,
+			// a live lease makes the upsert fail on the duplicate _id
+			Query free = new Query(Criteria.where("_id").is(candidate).orOperator(
+					Criteria.where("expiresAt").lt(new Date(now)),
+					Criteria.where("owner").is(this.owner)));
+
+			try {
+				NodeLease lease = this.mongoOperations.findAndModify(free,
+						new Update().set("owner", this.owner).set("expiresAt", new Date(now + this.leaseMillis)),
+						FindAndModifyOptions.options().returnNew(true).upsert(true), NodeLease.class);
+
+				if (lease != null) {
+					this.nodeId = candidate;
+					this.validUntil = now + this.leaseMillis;
+					logger.info("leased node id " + candidate);
+					return;
+				}
+			} catch (DuplicateKeyException e) {
+				// leased by a live instance, try the next one
+			}
+		}
+
+		throw new IllegalStateException("all " + MAX_NODES + " node ids are leased");
+	}
+
+	private void renew() {
+		try {
+			long now = System.currentTimeMillis();
+			NodeLease lease = this.mongoOperations.findAndModify(
+					new Query(Criteria.where("_id").is(this.nodeId).and("owner").is(this.owner)),
+					new Update().set("expiresAt", new Date(now + this.leaseMillis)),
+					FindAndModifyOptions.options().returnNew(true), NodeLease.class);
+
+			if (lease != null) {
+				this.validUntil = now + this.leaseMillis;
+			} else {
+				logger.warn("lost the lease on node id " + this.nodeId + ", leasing a new one");
+				acquire();
+			}
+		} catch (Exception e) {
+			// keep the current lease until it runs out, the next run retries
+			logger.warn("could not renew node id lease: " + e.getMessage());
+		}
+	}
+}
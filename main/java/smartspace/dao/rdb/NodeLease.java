@@ -0,0 +1,45 @@
+package smartspace.dao.rdb;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * A node id leased by one running instance for the time ordered id generator.
+ */
+@Document(collection = "node_leases")
+public class NodeLease {
+
+	private int nodeId;
+	private String owner;
+	private Date expiresAt;
+
+	public NodeLease() {
+	}
+
+	@Id
+	public int getNodeId() {
+		return nodeId;
+	}
+
+	public void setNodeId(int nodeId) {
+		this.nodeId = nodeId;
+	}
+
+	public String getOwner() {
+		return owner;
+	}
+
+	public void setOwner(String owner) {
+		this.owner = owner;
+	}
+
+	public Date getExpiresAt() {
+		return expiresAt;
+	}
+
+	public void setExpiresAt(Date expiresAt) {
+		this.expiresAt = expiresAt;
+	}
+}
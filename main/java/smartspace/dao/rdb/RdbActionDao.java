@@ -1,11 +1,18 @@
 package smartspace.dao.rdb;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,6 +27,8 @@ public class RdbActionDao implements EnhancedActionDao {
 	
 	private ActionCrud actionCrud;
 	private RdbSequenceDao sequenceGenerator;
+	private MongoOperations mongoOperations;
+	private ActionAppendWriter appendWriter;
 	
 	private String appSmartspace;
 	
@@ -27,12 +36,17 @@ public class RdbActionDao implements EnhancedActionDao {
 	 * @author liadkh
 	 * @param actionCrud
 	 * @param sequenceGenerator
+	 * @param mongoOperations
+	 * @param appendWriter
 	 */
 	@Autowired
-	public RdbActionDao(ActionCrud actionCrud, RdbSequenceDao sequenceGenerator) {
+	public RdbActionDao(ActionCrud actionCrud, RdbSequenceDao sequenceGenerator, MongoOperations mongoOperations,
+			ActionAppendWriter appendWriter) {
 		super();
 		this.actionCrud = actionCrud;
 		this.sequenceGenerator = sequenceGenerator;
+		this.mongoOperations = mongoOperations;
+		this.appendWriter = appendWriter;
 	}
 	
 	@Value("${smartspace.name}") 
@@ -41,19 +55,38 @@ public class RdbActionDao implements EnhancedActionDao {
 	}
 
 	@Override
-	@Transactional
 	public ActionEntity create(ActionEntity actionEntity) {
-		actionEntity.setActionSmartspace(appSmartspace);
-		actionEntity.setKey(new ActionKey(actionEntity.getActionSmartspace(), sequenceGenerator.generateNextId(SEQUENCE_NAME)));
+		actionEntity.setKey(reserveKey());
+		return createWithReservedKey(actionEntity);
+	}
+
+	@Override
+	public ActionKey reserveKey() {
+		return new ActionKey(appSmartspace, sequenceGenerator.generateNextId(SEQUENCE_NAME));
+	}
 
-		if (!this.actionCrud.existsById(actionEntity.getKey())) {
-			ActionEntity rv = this.actionCrud.save(actionEntity);
-			return rv;
-		} else {
+	@Override
+	public ActionEntity createWithReservedKey(ActionEntity actionEntity) {
+		// actions are append only, insert with the other actions of the batch,
+		// the unique _id replaces the exists check
+		try {
+			actionEntity.setLastModified(new Date());
+			return this.appendWriter.append(actionEntity);
+		} catch (DuplicateKeyException e) {
 			throw new RuntimeException("action already exists with key: " + actionEntity.getKey());
 		}
 	}
 
+	@Override
+	public List<ActionEntity> createAll(List<ActionEntity> actions) {
+		Date now = new Date();
+		actions.forEach(action -> {
+			action.setKey(reserveKey());
+			action.setLastModified(now);
+		});
+		return BulkUpsert.insertAll(this.mongoOperations, ActionEntity.class, actions, ActionEntity::getKey);
+	}
+
 	@Override
 	@Transactional(readOnly = true)
 	public List<ActionEntity> readAll() {
@@ -88,6 +121,24 @@ public class RdbActionDao implements EnhancedActionDao {
 		return this.actionCrud.findAll(PageRequest.of(page, size, Direction.ASC, sortBy)).getContent();
 	}
 
+	@Override
+	@Transactional(readOnly = true)
+	public List<ActionEntity> readAllAfter(ActionKey after, int size) {
+		Query query = new Query();
+		if (after != null) {
+			// compare with the key exactly as it is stored in _id
+			query.addCriteria(Criteria.where("_id").gt(this.mongoOperations.getConverter().convertToMongoType(after)));
+		}
+		query.with(Sort.by(Direction.ASC, "key")).limit(size);
+
+		return this.mongoOperations.find(query, ActionEntity.class);
+	}
+
+	@Override
+	public Stream<ActionEntity> streamAll(Date modifiedSince) {
+		return CursorStream.modifiedSince(this.mongoOperations, ActionEntity.class, modifiedSince);
+	}
+
 	/**
 	 * Import action.
 	 *
@@ -98,8 +149,16 @@ public class RdbActionDao implements EnhancedActionDao {
 	@Transactional
 	public ActionEntity importAction(ActionEntity action) {
 		if (action.getKey() != null) {
+			action.setLastModified(new Date());
 			return this.actionCrud.save(action);
 		}
 		return null;
 	}
+
+	@Override
+	public List<ActionEntity> importActions(List<ActionEntity> actions) {
+		Date now = new Date();
+		actions.forEach(action -> action.setLastModified(now));
+		return BulkUpsert.upsertAll(this.mongoOperations, ActionEntity.class, actions, ActionEntity::getKey);
+	}
 }
@@ -1,18 +1,39 @@
 package smartspace.dao.rdb;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.geo.Circle;
+import org.springframework.data.geo.Point;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.mongodb.client.result.UpdateResult;
+
+import smartspace.dao.BulkImportException;
 import smartspace.dao.EnhancedElementDao;
 import smartspace.data.ElementEntity;
 import smartspace.data.ElementKey;
+import smartspace.data.Location;
 
 @Repository
 public class RdbElementDao implements EnhancedElementDao<ElementKey> {
@@ -22,6 +43,8 @@ public class RdbElementDao implements EnhancedElementDao<ElementKey> {
 	
 	private ElementCrud elementCrud;
 	private RdbSequenceDao sequenceGenerator;
+	private MongoOperations mongoOperations;
+	private ElementLocationIndex locationIndex;
 
 	private String appSmartspace;
 
@@ -29,13 +52,18 @@ public class RdbElementDao implements EnhancedElementDao<ElementKey> {
 	 * Instantiates a new rdb element dao.
 	 *
 	 * @author liadkh
-	 * @param elementCrud            the element crud
-	 * @param genericIdGeneratorCrud the generic id generator crud
+	 * @param elementCrud       the element crud
+	 * @param sequenceGenerator the sequence generator
+	 * @param mongoOperations   the mongo operations
+	 * @param locationIndex     the location index
 	 */
-	public RdbElementDao(ElementCrud elementCrud, RdbSequenceDao sequenceGenerator) {
+	public RdbElementDao(ElementCrud elementCrud, RdbSequenceDao sequenceGenerator, MongoOperations mongoOperations,
+			ElementLocationIndex locationIndex) {
 		super();
 		this.elementCrud = elementCrud;
 		this.sequenceGenerator = sequenceGenerator;
+		this.mongoOperations = mongoOperations;
+		this.locationIndex = locationIndex;
 	}
 	
 	@Value("${smartspace.name}") 
@@ -44,16 +72,20 @@ public class RdbElementDao implements EnhancedElementDao<ElementKey> {
 	}
 
 	@Override
-	@Transactional
 	public ElementEntity create(ElementEntity elementEntity) {
 		elementEntity.setElementSmartspace(appSmartspace);
 		elementEntity.setKey(new ElementKey(elementEntity.getElementSmartspace(), sequenceGenerator.generateNextId(SEQUENCE_NAME)));
 
-		if (!this.elementCrud.existsById(elementEntity.getKey())) {
-			ElementEntity rv = this.elementCrud.save(elementEntity);
-			return rv;
-		} else
+		// a plain insert, the unique _id rejects an existing key in the same round trip
+		elementEntity.setLastModified(new Date());
+		ElementEntity rv;
+		try {
+			rv = this.elementCrud.insert(elementEntity);
+		} catch (DuplicateKeyException e) {
 			throw new RuntimeException("Element already exists with key: " + elementEntity.getKey());
+		}
+		this.locationIndex.put(rv);
+		return rv;
 	}
 
 	@Override
@@ -72,57 +104,149 @@ public class RdbElementDao implements EnhancedElementDao<ElementKey> {
 	}
 
 	@Override
-	@Transactional
 	public void update(ElementEntity update) {
-		ElementEntity existing = this.readById(update.getKey())
-				.orElseThrow(() -> new RuntimeException("no element to update"));
+		// $set only the fields that changed, one round trip, a single
+		// document update is atomic without a transaction
+		Query query = new Query(Criteria.where("_id").is(this.mongoOperations.getConverter().convertToMongoType(update.getKey())));
+
+		UpdateResult result;
+		if (update.getMoreAttributes() == null || update.getMoreAttributes().isEmpty()
+				|| !isPathSafe(update.getMoreAttributes().keySet())) {
+			result = this.mongoOperations.updateFirst(query, toUpdate(update, false), ElementEntity.class);
+		} else {
+			result = updateAttributes(update.getKey(), toUpdate(update, false), toUpdate(update, true));
+		}
+
+		if (result.getMatchedCount() == 0) {
+			throw new RuntimeException("no element to update");
+		}
+
+		this.locationIndex.update(update.getKey(), update.getLocation(), update.getExpired());
+	}
+
+	/**
+	 * Compile an update into $set of the non null fields.
+	 *
+	 * @param update         the update
+	 * @param wholeAttributes replace moreAttributes instead of setting each key
+	 * @return the update
+	 */
+	private Update toUpdate(ElementEntity update, boolean wholeAttributes) {
+		Update set = new Update();
 
 		if (update.getName() != null)
-			existing.setName(update.getName());
+			set.set("name", update.getName());
 
 		if (update.getType() != null)
-			existing.setType(update.getType());
-
-		if (update.getMoreAttributes() != null)
-			existing.setMoreAttributes(update.getMoreAttributes());
+			set.set("type", update.getType());
+
+		if (update.getMoreAttributes() != null) {
+			if (wholeAttributes || !isPathSafe(update.getMoreAttributes().keySet())) {
+				set.set("moreAttributes", update.getMoreAttributes());
+			} else {
+				// only the given attributes are rewritten
+				update.getMoreAttributes().forEach((key, value) -> set.set("moreAttributes." + key, value));
+			}
+		}
 
 		if (update.getLocation() != null)
-			existing.setLocation(update.getLocation());
+			set.set("location", update.getLocation());
 
-			existing.setExpired(update.getExpired());
 		// Eyal said to not update key attributes
-//		if (update.getElementSmartspace() != null)
-//			existing.setElementSmartspace(update.getElementSmartspace());
+		// creator smartspace and email are attributes of user key and can not update
+
+		set.set("expired", update.getExpired());
+		set.set("lastModified", new Date());
+		return set;
+	}
+
+	/**
+	 * Run an update that sets paths inside moreAttributes. The paths can't be
+	 * created when the stored moreAttributes is not a document (null), only
+	 * then the whole map is set instead. Both are filtered on the stored type,
+	 * so the whole map never overwrites attributes written in between.
+	 *
+	 * @param key   the element key
+	 * @param paths the update of paths inside moreAttributes
+	 * @param whole the same update setting moreAttributes as a whole
+	 * @return the result of the update that ran last
+	 */
+	private UpdateResult updateAttributes(ElementKey key, Update paths, Update whole) {
+		Object id = this.mongoOperations.getConverter().convertToMongoType(key);
+
+		// 3 is the BSON type of a document
+		UpdateResult rv = this.mongoOperations.updateFirst(
+				new Query(Criteria.where("_id").is(id).and("moreAttributes").type(3)), paths, ElementEntity.class);
+		if (rv.getMatchedCount() == 0) {
+			rv = this.mongoOperations.updateFirst(
+					new Query(Criteria.where("_id").is(id).and("moreAttributes").not().type(3)), whole, ElementEntity.class);
+		}
+		return rv;
+	}
+
+	@Override
+	public void setAttribute(ElementKey key, String attribute, Object value) {
+		updateAttribute(key, new Update().set(attributePath(attribute), value),
+				new Update().set("moreAttributes", Collections.singletonMap(attribute, value)));
+	}
+
+	@Override
+	public void addToAttributeSet(ElementKey key, String attribute, Object value) {
+		updateAttribute(key, new Update().addToSet(attributePath(attribute), value),
+				new Update().set("moreAttributes", Collections.singletonMap(attribute, Collections.singletonList(value))));
+	}
 
-		// this can not update (attributes of user key)
-//		if (update.getCreatorSmartspace() != null)
-//			existing.setCreatorSmartspace(update.getCreatorSmartspace());
+	@Override
+	public void removeFromAttributeSet(ElementKey key, String attribute, Object value) {
+		// without moreAttributes there is nothing to remove
+		updateAttribute(key, new Update().pull(attributePath(attribute), value), new Update());
+	}
+
+	private void updateAttribute(ElementKey key, Update paths, Update whole) {
+		paths.set("lastModified", new Date());
+		whole.set("lastModified", new Date());
+
+		// the server changes the attribute, concurrent updates don't overwrite each other
+		if (updateAttributes(key, paths, whole).getMatchedCount() == 0) {
+			throw new RuntimeException("no element to update");
+		}
+	}
 
-		// this can not update (attributes of user key)
-//		if (update.getCreatorEmail() != null)
-//			existing.setCreatorEmail(update.getCreatorEmail());
-		
-		existing.setExpired(update.getExpired());
+	private String attributePath(String attribute) {
+		if (attribute == null || !isPathSafe(Collections.singleton(attribute))) {
+			throw new RuntimeException("invalid attribute name: " + attribute);
+		}
+		return "moreAttributes." + attribute;
+	}
 
-		this.elementCrud.save(existing);
+	private boolean isPathSafe(Collection<String> keys) {
+		for (String key : keys) {
+			if (key.isEmpty() || key.contains(".") || key.startsWith("$")) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	@Override
 	@Transactional
 	public void deleteByKey(ElementKey elementKey) {
 		this.elementCrud.deleteById(elementKey);
+		this.locationIndex.remove(elementKey);
 	}
 
 	@Override
 	@Transactional
 	public void delete(ElementEntity elementEntity) {
 		this.elementCrud.delete(elementEntity);
+		this.locationIndex.remove(elementEntity.getKey());
 	}
 
 	@Override
 	@Transactional
 	public void deleteAll() {
 		this.elementCrud.deleteAll();
+		this.locationIndex.clear();
 	}
 
 	/**
@@ -154,11 +278,28 @@ public class RdbElementDao implements EnhancedElementDao<ElementKey> {
 	@Transactional
 	public ElementEntity importElement(ElementEntity element) {
 		if (element.getKey() != null) {
-			return this.elementCrud.save(element);
+			element.setLastModified(new Date());
+			ElementEntity rv = this.elementCrud.save(element);
+			this.locationIndex.put(rv);
+			return rv;
 		}
 		return null;
 	}
 
+	@Override
+	public List<ElementEntity> importElements(List<ElementEntity> elements) {
+		Date now = new Date();
+		elements.forEach(element -> element.setLastModified(now));
+		try {
+			BulkUpsert.upsertAll(this.mongoOperations, ElementEntity.class, elements, ElementEntity::getKey);
+			elements.forEach(this.locationIndex::put);
+			return elements;
+		} catch (BulkImportException e) {
+			e.getImported().forEach(element -> this.locationIndex.put((ElementEntity) element));
+			throw e;
+		}
+	}
+
 	/**
 	 * Read all using paging.
 	 *
@@ -170,11 +311,11 @@ public class RdbElementDao implements EnhancedElementDao<ElementKey> {
 	@Override
 	@Transactional(readOnly = true)
 	public List<ElementEntity> readAllUsingPaging(boolean showExpired, int size, int page) {
-		PageRequest p = PageRequest.of(page, size, Direction.ASC, "elementId");
+		PageRequest p = PageRequest.of(page, size, Direction.ASC, "key");
 		if (showExpired)
 			return elementCrud.findAll(p).getContent();
 		else
-			return elementCrud.findAllByExpired(showExpired, PageRequest.of(page, size, Direction.ASC, "elementId"));
+			return elementCrud.findAllByExpired(showExpired, PageRequest.of(page, size, Direction.ASC, "key"));
 	}
 
 	/**
@@ -190,7 +331,7 @@ public class RdbElementDao implements EnhancedElementDao<ElementKey> {
 	@Override
 	@Transactional(readOnly = true)
 	public List<ElementEntity> readAllWithSameValuesUsingPaging(boolean showExpired, String searchBy, String value, int size, int page) {
-		PageRequest p = PageRequest.of(page, size, Direction.ASC, "elementId");
+		PageRequest p = PageRequest.of(page, size, Direction.ASC, "key");
 
 		switch (searchBy) {
 		case "name":
@@ -211,36 +352,211 @@ public class RdbElementDao implements EnhancedElementDao<ElementKey> {
 		return null;
 	}
 	
+	/**
+	 * Search by location - all the elements within distance of (x, y), ordered
+	 * by key. Answered by the in memory location index when it is ready, then
+	 * only the requested page is read from the database and checked again
+	 * (readLocated). A page starts at its offset in the index, which may still
+	 * hold elements changed by other instances. Otherwise uses the
+	 * 2dsphere index on location.point. Both measure the distance on the sphere,
+	 * in degrees of arc, and skip the locations that are not a valid lat/lng.
+	 *
+	 * @param includeExpired the include expired
+	 * @param x              the x (lat)
+	 * @param y              the y (lng)
+	 * @param distance       the distance
+	 * @param size           the size
+	 * @param page           the page
+	 * @return the list
+	 */
 	@Override
 	@Transactional(readOnly = true)
 	public List<ElementEntity> searchByLocation(boolean includeExpired, Double x, Double y, Double distance, int size, int page) {
-		PageRequest pageable = PageRequest.of(page, size, Direction.ASC, "key");
-		
-		// linear search
-		// TODO: change to radius search
-		Double xMin = x - distance;
-		Double xMax = x + distance;
-		Double yMin = y - distance;
-		Double yMax = y + distance;
-		
-		if (includeExpired) {
-			return this.elementCrud.findAllByLocation_XBetweenAndLocation_YBetween(xMin, xMax, yMin, yMax, pageable);
-		} 
-		
-		return this.elementCrud.findAllByExpiredFalseAndLocation_XBetweenAndLocation_YBetween(xMin, xMax, yMin, yMax, pageable);
-	}
-
-	@Override
-	public List<ElementEntity> readAllListsByCreator(String creatorSmartspace, String creatorEmail, int size, int page) {
-		PageRequest pageable = PageRequest.of(page, size, Direction.ASC, "creationTimestamp");
-		return this.elementCrud.findAllByCreatorSmartspaceAndCreatorEmailAndType(creatorSmartspace, creatorEmail, SHOPPING_LIST_TYPE, pageable);
+		Optional<List<ElementKey>> keys = this.locationIndex.search(includeExpired, x, y, distance, size, page);
+		if (keys.isPresent()) {
+			return readLocated(keys.get(), includeExpired, x, y, distance, size);
+		}
+
+		// $centerSphere takes the radius in radians
+		double radius = Math.min(Math.toRadians(distance), Math.PI);
+
+		Query query = new Query(Criteria.where("location.point").withinSphere(new Circle(new Point(y, x), radius)));
+		if (!includeExpired) {
+			query.addCriteria(Criteria.where("expired").is(false));
+		}
+		query.with(PageRequest.of(page, size, Direction.ASC, "key"));
+
+		return this.mongoOperations.find(query, ElementEntity.class);
 	}
 
 	@Override
-	public List<ElementEntity> readAllListsByMember(String userSmartspace, String userEmail, int size, int page) {
-		PageRequest pageable = PageRequest.of(page, size, Direction.ASC, "creationTimestamp");
-		
-		return this.elementCrud.findShoppingListsByUser(userSmartspace, userEmail, SHOPPING_LIST_TYPE, pageable);
+	@Transactional(readOnly = true)
+	public List<ElementEntity> searchByLocationUsingKeyset(boolean includeExpired, Double x, Double y, Double distance, ElementKey after, int size) {
+		Optional<List<ElementKey>> keys = this.locationIndex.searchAfter(includeExpired, x, y, distance, after, size);
+		if (keys.isPresent()) {
+			return readLocated(keys.get(), includeExpired, x, y, distance, size);
+		}
+
+		double radius = Math.min(Math.toRadians(distance), Math.PI);
+
+		Query query = new Query(Criteria.where("location.point").withinSphere(new Circle(new Point(y, x), radius)));
+		if (!includeExpired) {
+			query.addCriteria(Criteria.where("expired").is(false));
+		}
+
+		return this.mongoOperations.find(keyset(query, after, size), ElementEntity.class);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<ElementEntity> readAllAfter(ElementKey after, int size) {
+		return this.mongoOperations.find(keyset(new Query(), after, size), ElementEntity.class);
+	}
+
+	@Override
+	public Stream<ElementEntity> streamAll(Date modifiedSince) {
+		return CursorStream.modifiedSince(this.mongoOperations, ElementEntity.class, modifiedSince);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<ElementEntity> readAllUsingKeyset(boolean showExpired, ElementKey after, int size) {
+		Query query = new Query();
+		if (!showExpired) {
+			query.addCriteria(Criteria.where("expired").is(false));
+		}
+
+		return this.mongoOperations.find(keyset(query, after, size), ElementEntity.class);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<ElementEntity> readAllWithSameValuesUsingKeyset(boolean showExpired, String searchBy, String value, ElementKey after, int size) {
+		switch (searchBy) {
+		case "name":
+		case "type":
+			Query query = new Query(Criteria.where(searchBy).is(value));
+			if (!showExpired) {
+				query.addCriteria(Criteria.where("expired").is(false));
+			}
+			return this.mongoOperations.find(keyset(query, after, size), ElementEntity.class);
+
+		default:
+			break;
+		}
+		return null;
+	}
+
+	/**
+	 * Seek past the given key on the _id index and limit to one page.
+	 *
+	 * @param query the query
+	 * @param after the last key of the previous page, null for the first page
+	 * @param size  the size
+	 * @return the query
+	 */
+	private Query keyset(Query query, ElementKey after, int size) {
+		if (after != null) {
+			// compare with the key exactly as it is stored in _id
+			query.addCriteria(Criteria.where("_id").gt(this.mongoOperations.getConverter().convertToMongoType(after)));
+		}
+		return query.with(Sort.by(Direction.ASC, "key")).limit(size);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Set<ElementKey> readExistingKeys(Collection<ElementKey> keys) {
+		Set<ElementKey> rv = new HashSet<>();
+		if (keys.isEmpty()) {
+			return rv;
+		}
+
+		List<Object> ids = new ArrayList<>();
+		keys.forEach(key -> ids.add(this.mongoOperations.getConverter().convertToMongoType(key)));
+
+		// the key is built from these fields, nothing else is read
+		Query query = new Query(Criteria.where("_id").in(ids));
+		query.fields().include("elementSmartspace").include("elementId");
+
+		this.mongoOperations.find(query, ElementEntity.class).forEach(element -> rv.add(element.getKey()));
+		return rv;
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Map<ElementKey, ElementEntity> readAllById(Collection<ElementKey> keys) {
+		Map<ElementKey, ElementEntity> rv = new HashMap<>();
+		if (!keys.isEmpty()) {
+			// one $in on _id
+			this.elementCrud.findAllById(keys).forEach(element -> rv.put(element.getKey(), element));
+		}
+		return rv;
+	}
+
+	/**
+	 * Read the elements found by the location index, one page of keys per
+	 * query. Other instances reach the index only on its refresh, so each
+	 * element is checked again: the deleted ones are removed from the index,
+	 * the expired or moved ones are corrected in it and left out. The page is
+	 * filled with the next keys of the index until it is full or the index has
+	 * no more.
+	 *
+	 * @param keys           the first page of keys
+	 * @param includeExpired the include expired
+	 * @param x              the x (lat)
+	 * @param y              the y (lng)
+	 * @param distance       the distance
+	 * @param size           the size
+	 * @return the elements, in the order of the keys
+	 */
+	private List<ElementEntity> readLocated(List<ElementKey> keys, boolean includeExpired, double x, double y,
+			double distance, int size) {
+		List<ElementEntity> rv = new ArrayList<>();
+
+		while (true) {
+			Map<ElementKey, ElementEntity> found = readAllById(keys);
+			for (ElementKey key : keys) {
+				ElementEntity element = found.get(key);
+				if (element == null) {
+					this.locationIndex.remove(key);
+				} else if (!isLocated(element, includeExpired, x, y, distance)) {
+					this.locationIndex.put(element);
+				} else if (rv.size() < size) {
+					rv.add(element);
+				}
+			}
+
+			if (rv.size() >= size || keys.size() < size) {
+				return rv;
+			}
+			keys = this.locationIndex.searchAfter(includeExpired, x, y, distance, keys.get(keys.size() - 1), size)
+					.orElse(Collections.emptyList());
+		}
+	}
+
+	private boolean isLocated(ElementEntity element, boolean includeExpired, double x, double y, double distance) {
+		Location location = element.getLocation();
+		return (includeExpired || !element.getExpired()) && location != null && location.isValid()
+				&& location.angularDistance(x, y) <= distance;
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<ElementEntity> readAllListsByCreatorOrMember(String userSmartspace, String userEmail, int size, int page) {
+		Map<String, Object> member = new LinkedHashMap<>();
+		member.put("userSmartspace", userSmartspace);
+		member.put("userEmail", userEmail);
+
+		// each branch has its own index, a list matching both is returned once
+		Query query = new Query(new Criteria().orOperator(
+				Criteria.where("creatorSmartspace").is(userSmartspace).and("creatorEmail").is(userEmail)
+						.and("type").is(SHOPPING_LIST_TYPE),
+				Criteria.where("moreAttributes.members").is(member).and("type").is(SHOPPING_LIST_TYPE)));
+
+		// key breaks creationTimestamp ties so pages don't overlap
+		query.with(PageRequest.of(page, size, Sort.by(Direction.ASC, "creationTimestamp", "key")));
+
+		return this.mongoOperations.find(query, ElementEntity.class);
 	}
 	
 	@Override
@@ -1,35 +1,34 @@
 package smartspace.dao.rdb;
 
-import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * Generates the ids of new elements and actions with the configured
+ * {@link IdGenerator} (smartspace.ids.strategy):
+ * <ul>
+ * <li>sequence (default) - blocks reserved from database_sequences</li>
+ * <li>timeOrdered - timestamp + leased node id + counter, no database access
+ * per id</li>
+ * </ul>
+ */
 @Repository
 public class RdbSequenceDao {
-	private GenericIdGeneratorCrud<String> genericIdGeneratorCrud;
+	private IdGenerator idGenerator;
 
 	@Autowired
-	public RdbSequenceDao(GenericIdGeneratorCrud<String> genericIdGeneratorCrud) {
+	public RdbSequenceDao(IdGenerator idGenerator) {
 		super();
-		this.genericIdGeneratorCrud = genericIdGeneratorCrud;
+		this.idGenerator = idGenerator;
 	}
 
-	@Transactional
+	// id generation must not join the caller's transaction, otherwise
+	// concurrent creates conflict on the sequence document and a rollback
+	// would hand the same block out twice
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
 	public long generateNextId(String sequenceName) {
-		GenericIdGenerator sequence = new GenericIdGenerator(sequenceName);
-		Optional<GenericIdGenerator> currentSeq = this.genericIdGeneratorCrud.findById(sequenceName);
-		
-
-		if (currentSeq.isPresent()) {
-			sequence = currentSeq.get();
-		}
-
-		// increase id and save
-		sequence.setSequenceValue(sequence.getSequenceValue() + 1);
-		this.genericIdGeneratorCrud.save(sequence);
-		
-		return sequence.getSequenceValue();
+		return this.idGenerator.nextId(sequenceName);
 	}
-
 }
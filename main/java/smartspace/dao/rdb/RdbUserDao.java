@@ -1,30 +1,45 @@
 package smartspace.dao.rdb;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import smartspace.dao.EnhancedUserDao;
 import smartspace.data.UserEntity;
 import smartspace.data.UserKey;
+import smartspace.data.UserRole;
 
 @Repository
 public class RdbUserDao implements EnhancedUserDao<UserKey> {
 	private UserCrud userCrud;
+	private MongoOperations mongoOperations;
+	private UserIdentityCache identityCache;
 
 	private String appSmartspace;
 
 	@Autowired
-	public RdbUserDao(UserCrud userCrud) {
+	public RdbUserDao(UserCrud userCrud, MongoOperations mongoOperations, UserIdentityCache identityCache) {
 		super();
 		this.userCrud = userCrud;
+		this.mongoOperations = mongoOperations;
+		this.identityCache = identityCache;
 	}
 
     @Value("${smartspace.name}") 
@@ -33,15 +48,18 @@ public class RdbUserDao implements EnhancedUserDao<UserKey> {
 	}
 
 	@Override
-	@Transactional
 	public UserEntity create(UserEntity userEntity) {
 		userEntity.setUserSmartspace(appSmartspace);
 		userEntity.setKey(new UserKey(userEntity.getUserSmartspace(), userEntity.getUserEmail()));
 
-		if (!this.userCrud.existsById(userEntity.getKey())) {
-			UserEntity rv = this.userCrud.save(userEntity);
+		// a plain insert, the unique _id rejects an existing user in the same round
+		// trip, also when two registrations of the same email race
+		try {
+			userEntity.setLastModified(new Date());
+			UserEntity rv = this.userCrud.insert(userEntity);
+			this.identityCache.invalidate(rv.getKey());
 			return rv;
-		} else {
+		} catch (DuplicateKeyException e) {
 			throw new RuntimeException("user already exists with key: " + userEntity.getKey());
 		}
 	}
@@ -62,30 +80,52 @@ public class RdbUserDao implements EnhancedUserDao<UserKey> {
 	}
 
 	@Override
-	@Transactional
-	public void update(UserEntity update) {
+	public Optional<UserRole> readRoleById(UserKey userKey) {
+		return this.identityCache.getRole(userKey, key -> {
+			// only the role is read
+			Query query = new Query(Criteria.where("_id").is(this.mongoOperations.getConverter().convertToMongoType(key)));
+			query.fields().include("role");
+			return Optional.ofNullable(this.mongoOperations.findOne(query, UserEntity.class)).map(UserEntity::getRole);
+		});
+	}
 
-		UserEntity existing = this.readById(update.getKey())
-				.orElseThrow(() -> new RuntimeException("no user to update"));
+	@Override
+	public Map<String, Object> readIdentityCacheStats() {
+		return this.identityCache.getStats();
+	}
+
+	@Override
+	public void update(UserEntity update) {
+		// $set only the fields that changed, one round trip, a single
+		// document update is atomic without a transaction
+		Update set = new Update();
 
 		if (update.getAvatar() != null) {
-			existing.setAvatar(update.getAvatar());
+			set.set("avatar", update.getAvatar());
 		}
-//		if (update.getUserEmail() != null) {
-//			existing.setUserEmail(update.getUserEmail());
-//		}
+		// user email and smartspace are the key and can't be updated
 		if (update.getUsername() != null) {
-			existing.setUsername(update.getUsername());
+			set.set("username", update.getUsername());
 		}
-//		if (update.getUserSmartspace() != null) {
-//			existing.setUserSmartspace(update.getUserSmartspace());
-//		}
 		if (update.getRole() != null) {
-			existing.setRole(update.getRole());
+			set.set("role", update.getRole());
 		}
-		//existing.setPoints(update.getPoints()); the only way to get points is to do actions
+		//points are not updated, the only way to get points is to do actions
 
-		this.userCrud.save(existing);
+		Query query = new Query(Criteria.where("_id").is(this.mongoOperations.getConverter().convertToMongoType(update.getKey())));
+
+		boolean found;
+		if (set.getUpdateObject().isEmpty()) {
+			found = this.mongoOperations.exists(query, UserEntity.class);
+		} else {
+			set.set("lastModified", new Date());
+			found = this.mongoOperations.updateFirst(query, set, UserEntity.class).getMatchedCount() > 0;
+		}
+
+		this.identityCache.invalidate(update.getKey());
+		if (!found) {
+			throw new RuntimeException("no user to update");
+		}
 	}
 
 	@Override
@@ -95,13 +135,27 @@ public class RdbUserDao implements EnhancedUserDao<UserKey> {
 				.orElseThrow(() -> new RuntimeException("no user to update"));
 		
 		existing.setPoints(update.getPoints());
+		existing.setLastModified(new Date());
 		this.userCrud.save(existing);
+		this.identityCache.invalidate(existing.getKey());
+	}
+
+	@Override
+	public Optional<Long> incrementPoints(UserKey userKey, long points) {
+		// the role is not changed, the identity cache stays valid
+		Query query = new Query(Criteria.where("_id").is(this.mongoOperations.getConverter().convertToMongoType(userKey)));
+		query.fields().include("points");
+
+		UserEntity rv = this.mongoOperations.findAndModify(query, new Update().inc("points", points).set("lastModified", new Date()),
+				FindAndModifyOptions.options().returnNew(true), UserEntity.class);
+		return Optional.ofNullable(rv).map(UserEntity::getPoints);
 	}
 
 	@Override
 	@Transactional
 	public void deleteAll() {
 		this.userCrud.deleteAll();
+		this.identityCache.invalidateAll();
 	}
 
 	/**
@@ -124,6 +178,24 @@ public class RdbUserDao implements EnhancedUserDao<UserKey> {
 
 	}
 
+	@Override
+	@Transactional(readOnly = true)
+	public List<UserEntity> readAllAfter(UserKey after, int size) {
+		Query query = new Query();
+		if (after != null) {
+			// compare with the key exactly as it is stored in _id
+			query.addCriteria(Criteria.where("_id").gt(this.mongoOperations.getConverter().convertToMongoType(after)));
+		}
+		query.with(Sort.by(Direction.ASC, "key")).limit(size);
+
+		return this.mongoOperations.find(query, UserEntity.class);
+	}
+
+	@Override
+	public Stream<UserEntity> streamAll(Date modifiedSince) {
+		return CursorStream.modifiedSince(this.mongoOperations, UserEntity.class, modifiedSince);
+	}
+
 	/**
 	 * Import user.
 	 *
@@ -134,9 +206,23 @@ public class RdbUserDao implements EnhancedUserDao<UserKey> {
 	@Transactional
 	public UserEntity importUser(UserEntity user) {
 		if (user.getKey() != null) {
-			return this.userCrud.save(user);
+			user.setLastModified(new Date());
+			UserEntity rv = this.userCrud.save(user);
+			this.identityCache.invalidate(rv.getKey());
+			return rv;
 		}
 		return null;
 	}
 
+	@Override
+	public List<UserEntity> importUsers(List<UserEntity> users) {
+		try {
+			Date now = new Date();
+			users.forEach(user -> user.setLastModified(now));
+			return BulkUpsert.upsertAll(this.mongoOperations, UserEntity.class, users, UserEntity::getKey);
+		} finally {
+			users.forEach(user -> this.identityCache.invalidate(user.getKey()));
+		}
+	}
+
 }
@@ -0,0 +1,69 @@
+package smartspace.dao.rdb;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds 64 bit ids without talking to the database:
+ * 
+ * <pre>
+ * | 0 | 41 bits millis since EPOCH | 10 bits node id | 12 bits counter |
+ * </pre>
+ * 
+ * Ids grow with time, so sorting by key keeps roughly the creation order. Ids
+ * of one node are strictly increasing, also when the clock moves backwards.
+ */
+@Component
+@ConditionalOnProperty(name = "smartspace.ids.strategy", havingValue = "timeOrdered")
+public class TimeOrderedIdGenerator implements IdGenerator {
+	/** 2019-01-01T00:00:00Z */
+	public static final long EPOCH = 1546300800000L;
+
+	public static final int NODE_BITS = 10;
+	public static final int COUNTER_BITS = 12;
+	public static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+	private NodeIdLease nodeIdLease;
+
+	/** (millis since EPOCH << COUNTER_BITS) | counter of the last id */
+	private AtomicLong lastState;
+
+	@Autowired
+	public TimeOrderedIdGenerator(NodeIdLease nodeIdLease) {
+		this.nodeIdLease = nodeIdLease;
+		this.lastState = new AtomicLong();
+	}
+
+	@Override
+	public long nextId(String sequenceName) {
+		long nodeId = this.nodeIdLease.currentNodeId();
+
+		while (true) {
+			long last = this.lastState.get();
+			long lastTick = last >>> COUNTER_BITS;
+			long now = System.currentTimeMillis() - EPOCH;
+
+			long next;
+			if (now > lastTick) {
+				next = now << COUNTER_BITS;
+			} else {
+				// same millisecond, or the clock moved back: continue on the last tick
+				long counter = (last & COUNTER_MASK) + 1;
+				if (counter > COUNTER_MASK) {
+					// counter exhausted, wait for the clock to pass the last tick
+					Thread.yield();
+					continue;
+				}
+				next = last + 1;
+			}
+
+			if (this.lastState.compareAndSet(last, next)) {
+				long tick = next >>> COUNTER_BITS;
+				return (tick << (NODE_BITS + COUNTER_BITS)) | (nodeId << COUNTER_BITS) | (next & COUNTER_MASK);
+			}
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package smartspace.dao.rdb;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import smartspace.data.UserKey;
+import smartspace.data.UserRole;
+
+/**
+ * Bounded, time limited cache of the role of each user, used to authorize
+ * requests without reading the user.
+ * <p>
+ * RdbUserDao invalidates a user when it changes on this instance. Each
+ * instance has its own cache, so another instance keeps using the old role,
+ * for example still letting a demoted admin in, for up to ttlSeconds after
+ * the change. Set ttlSeconds to 0 where that is not acceptable. Users that
+ * don't exist are not cached.
+ */
+@Component
+public class UserIdentityCache {
+	private long ttlNanos;
+	private int maxEntries;
+
+	private Map<UserKey, Entry> entries;
+
+	/** Changed by every invalidation, a role loaded before it is not cached. */
+	private AtomicLong generation;
+
+	private LongAdder hits;
+	private LongAdder misses;
+	private LongAdder evictions;
+
+	public UserIdentityCache() {
+		this.entries = new ConcurrentHashMap<>();
+		this.generation = new AtomicLong();
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.evictions = new LongAdder();
+	}
+
+	@Value("${smartspace.users.identityCache.ttlSeconds:30}")
+	public void setTtlSeconds(long ttlSeconds) {
+		this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+	}
+
+	@Value("${smartspace.users.identityCache.maxEntries:10000}")
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Get the role of a user, loading it on a miss.
+	 *
+	 * @param key    the key
+	 * @param loader reads the role of the user
+	 * @return the role, empty if the user doesn't exist
+	 */
+	public Optional<UserRole> getRole(UserKey key, Function<UserKey, Optional<UserRole>> loader) {
+		long now = System.nanoTime();
+
+		Entry entry = this.entries.get(key);
+		if (entry != null && now - entry.loadedAt < this.ttlNanos) {
+			this.hits.increment();
+			return Optional.of(entry.role);
+		}
+
+		this.misses.increment();
+		long generation = this.generation.get();
+		Optional<UserRole> role = loader.apply(key);
+		if (role.isPresent() && this.ttlNanos > 0 && generation == this.generation.get()) {
+			makeRoom();
+			this.entries.put(key, new Entry(role.get(), now));
+		} else {
+			this.entries.remove(key);
+		}
+		return role;
+	}
+
+	public void invalidate(UserKey key) {
+		this.generation.incrementAndGet();
+		this.entries.remove(key);
+	}
+
+	public void invalidateAll() {
+		this.generation.incrementAndGet();
+		this.entries.clear();
+	}
+
+	/**
+	 * @return the size and hit/miss counters of the cache
+	 */
+	public Map<String, Object> getStats() {
+		long hits = this.hits.sum();
+		long misses = this.misses.sum();
+
+		Map<String, Object> rv = new LinkedHashMap<>();
+		rv.put("size", this.entries.size());
+		rv.put("hits", hits);
+		rv.put("misses", misses);
+		rv.put("evictions", this.evictions.sum());
+		rv.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+		return rv;
+	}
+
+	private void makeRoom() {
+		if (this.entries.size() < this.maxEntries) {
+			return;
+		}
+
+		// drop the expired users first, then any user until there is room
+		long now = System.nanoTime();
+		this.entries.values().removeIf(entry -> now - entry.loadedAt >= this.ttlNanos);
+
+		Iterator<UserKey> keys = this.entries.keySet().iterator();
+		while (this.entries.size() >= this.maxEntries && keys.hasNext()) {
+			keys.next();
+			keys.remove();
+			this.evictions.increment();
+		}
+	}
+
+	private static class Entry {
+		private UserRole role;
+		private long loadedAt;
+
+		public Entry(UserRole role, long loadedAt) {
+			this.role = role;
+			this.loadedAt = loadedAt;
+		}
+	}
+}
@@ -19,6 +19,7 @@ public class ActionEntity implements SmartspaceEntity<ActionKey> {
 	private String actionType;
 	private Date creationTimestamp;
 	private Map<String, Object> moreAttributes;
+	private Date lastModified;
 	private ActionKey key;
 
 	// default constructor
@@ -110,6 +111,15 @@ public class ActionEntity implements SmartspaceEntity<ActionKey> {
 		this.moreAttributes = moreAttributes;
 	}
 
+	// set by the dao when the action is written, created or imported, used by the export
+	public Date getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(Date lastModified) {
+		this.lastModified = lastModified;
+	}
+
 	@Override
 	public String toString() {
 		return "ActionEntity [actionSmartspace=" + actionSmartspace + ", actionId=" + actionId + ", elementSmartspace="
@@ -149,6 +149,6 @@ public class ActionKey implements Comparable<ActionKey>, Serializable {
 	@Override
 	public int compareTo(ActionKey o) {
 		int res = this.actionSmartspace.compareTo(o.actionSmartspace);
-		return (int) (res == 0 ? this.id - o.id : res);
+		return res == 0 ? Long.compare(this.id, o.id) : res;
 	}
 }
@@ -20,6 +20,7 @@ public class ElementEntity implements SmartspaceEntity<ElementKey> {
 	private String creatorSmartspace;
 	private String creatorEmail;
 	private Map<String, Object> moreAttributes;
+	private Date lastModified;
 	private ElementKey key;
 
 	// default constructor
@@ -119,6 +120,15 @@ public class ElementEntity implements SmartspaceEntity<ElementKey> {
 		this.creationTimestamp = date;
 	}
 
+	// set by the dao on every write, used by the export
+	public Date getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(Date lastModified) {
+		this.lastModified = lastModified;
+	}
+
 	@Override
 	public String toString() {
 		return "ElementEntity [elementSmartSpace=" + elementSmartspace + ", elementId=" + elementId + ", location="
@@ -130,6 +130,6 @@ public class ElementKey implements Comparable<ElementKey>, Serializable {
 	@Override
 	public int compareTo(ElementKey o) {
 		int res = this.elementSmartspace.compareTo(o.elementSmartspace);
-		return (int) (res == 0 ? this.id - o.id : res);
+		return res == 0 ? Long.compare(this.id, o.id) : res;
 	}
 }
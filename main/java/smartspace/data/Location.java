@@ -2,18 +2,26 @@ package smartspace.data;
 
 import javax.persistence.Embeddable;
 
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
 @Embeddable
 public class Location {
 
 	private double x;
 	private double y;
 
+	// GeoJSON copy of (x = lat, y = lng) for the 2dsphere index. Elements are
+	// only written with a valid lat/lng (isValid), it is null only in documents
+	// saved before that, which the location search never returns
+	private GeoJsonPoint point;
+
 	public Location() {
 	}
 
 	public Location(double x, double y) {
 		this.x = x;
 		this.y = y;
+		this.point = toPoint(x, y);
 	}
 
 	public double getX() {
@@ -22,6 +30,7 @@ public class Location {
 
 	public void setX(double x) {
 		this.x = x;
+		this.point = toPoint(this.x, this.y);
 	}
 
 	public double getY() {
@@ -30,6 +39,57 @@ public class Location {
 
 	public void setY(double y) {
 		this.y = y;
+		this.point = toPoint(this.x, this.y);
+	}
+
+	public GeoJsonPoint getPoint() {
+		return point;
+	}
+
+	public void setPoint(GeoJsonPoint point) {
+		this.point = point;
+	}
+
+	/**
+	 * GeoJSON point of the given coordinates.
+	 *
+	 * @param lat the latitude (x)
+	 * @param lng the longitude (y)
+	 * @return the point, or null if the coordinates are out of range
+	 */
+	public static GeoJsonPoint toPoint(double lat, double lng) {
+		// also rejects NaN
+		if (!(lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180)) {
+			return null;
+		}
+
+		// GeoJSON coordinates are [lng, lat]
+		return new GeoJsonPoint(lng, lat);
+	}
+
+	/**
+	 * @return whether x is a latitude and y a longitude, elements with any
+	 *         other location are rejected
+	 */
+	public boolean isValid() {
+		return toPoint(this.x, this.y) != null;
+	}
+
+	/**
+	 * Great-circle distance to (x = lat, y = lng), in degrees of arc. The
+	 * location search measures with it, the same as $centerSphere does.
+	 *
+	 * @param lat the latitude
+	 * @param lng the longitude
+	 * @return the distance in degrees, 0..180
+	 */
+	public double angularDistance(double lat, double lng) {
+		// haversine, stable for small distances
+		double dLat = Math.toRadians(lat - this.x);
+		double dLng = Math.toRadians(lng - this.y);
+		double h = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(this.x))
+				* Math.cos(Math.toRadians(lat)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+		return Math.toDegrees(2 * Math.asin(Math.min(1, Math.sqrt(h))));
 	}
 
 	public Double distance(Double x, Double y) {
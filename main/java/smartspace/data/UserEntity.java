@@ -1,5 +1,7 @@
 package smartspace.data;
 
+import java.util.Date;
+
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -13,6 +15,7 @@ public class UserEntity implements SmartspaceEntity<UserKey> {
 	private String avatar;
 	private UserRole role;
 	private long points;
+	private Date lastModified;
 	private UserKey key;
 
 	// default constructor
@@ -79,6 +82,15 @@ public class UserEntity implements SmartspaceEntity<UserKey> {
 		this.points = points;
 	}
 
+	// time of the last write, kept by the dao
+	public Date getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(Date lastModified) {
+		this.lastModified = lastModified;
+	}
+
 	@Override
 	@Id
 	public UserKey getKey() {
@@ -37,7 +37,8 @@ public class EntityFaker {
 		entity.setElementId(faker.generateId().toString());
 		entity.setElementSmartspace(faker.appSmartspace);
 		entity.setExpired(false);
-		entity.setLocation(new Location(faker.generateDouble(0, 100), faker.generateDouble(0, 100)));
+		// a valid latitude and longitude
+		entity.setLocation(new Location(faker.generateDouble(0, 90), faker.generateDouble(0, 100)));
 		entity.setName("element" + faker.generateNumber(1, 1000));
 		entity.setType(elementTypes[random.nextInt(elementTypes.length)]);
 		entity.setMoreAttributes(faker.generateMap(true));
@@ -0,0 +1,104 @@
+package smartspace.infra;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import smartspace.data.ActionEntity;
+import smartspace.data.ActionKey;
+import smartspace.data.UserKey;
+
+/**
+ * The state of an action that was invoked asynchronously.
+ */
+public class ActionInvocation {
+	public enum Status {
+		QUEUED, PROCESSING, DONE, FAILED
+	}
+
+	private volatile ActionKey key;
+	private UserKey player;
+	private volatile Status status;
+	private volatile String error;
+	private volatile long finishedAt;
+	private CompletableFuture<ActionEntity> result;
+
+	/**
+	 * @param key    the action key, null if the action gets its key when it is created
+	 * @param player the player who invoked the action
+	 */
+	public ActionInvocation(ActionKey key, UserKey player) {
+		this.key = key;
+		this.player = player;
+		this.status = Status.QUEUED;
+		this.result = new CompletableFuture<>();
+	}
+
+	public ActionKey getKey() {
+		return key;
+	}
+
+	public UserKey getPlayer() {
+		return player;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * @return the created action, null until the action is done
+	 */
+	public ActionEntity getAction() {
+		return result.getNow(null);
+	}
+
+	public boolean isFinished() {
+		return result.isDone();
+	}
+
+	long getFinishedAt() {
+		return finishedAt;
+	}
+
+	/**
+	 * Wait until the action is finished or the time passed.
+	 *
+	 * @param waitMillis the time to wait
+	 */
+	public void await(long waitMillis) {
+		if (waitMillis <= 0) {
+			return;
+		}
+		try {
+			this.result.get(waitMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | TimeoutException e) {
+			// the status tells what happened
+		}
+	}
+
+	void processing() {
+		this.status = Status.PROCESSING;
+	}
+
+	void done(ActionEntity action) {
+		this.key = action.getKey();
+		this.finishedAt = System.nanoTime();
+		this.status = Status.DONE;
+		this.result.complete(action);
+	}
+
+	void failed(Throwable e) {
+		this.finishedAt = System.nanoTime();
+		this.error = e.getMessage();
+		this.status = Status.FAILED;
+		this.result.completeExceptionally(e);
+	}
+}
@@ -0,0 +1,180 @@
+package smartspace.infra;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import smartspace.data.ActionEntity;
+import smartspace.data.ActionKey;
+import smartspace.data.UserKey;
+
+/**
+ * Processes the actions invoked asynchronously on a pool of partitions.
+ * <p>
+ * The element of an action picks its partition, and each partition runs its
+ * actions one at a time, so the actions of an element are processed in the
+ * order they were queued. Each partition queues up to queueCapacity actions, a
+ * full partition rejects new actions with 429 Too Many Requests.
+ * <p>
+ * The invocations are kept for statusRetainSeconds after they finished, up to
+ * maxInvocations, so clients can poll them.
+ */
+@Component
+public class ActionInvokePipeline {
+	private Log logger = LogFactory.getLog(ActionInvokePipeline.class);
+
+	private int partitionCount;
+	private int queueCapacity;
+	private long retainNanos;
+	private int maxInvocations;
+	private boolean virtualThreads;
+
+	private ExecutorService[] partitions;
+	private Map<ActionKey, ActionInvocation> invocations;
+
+	public ActionInvokePipeline() {
+		this.invocations = new ConcurrentHashMap<>();
+	}
+
+	@Value("${smartspace.actions.async.partitions:8}")
+	public void setPartitionCount(int partitionCount) {
+		this.partitionCount = partitionCount;
+	}
+
+	@Value("${smartspace.actions.async.queueCapacity:1000}")
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	@Value("${smartspace.actions.async.statusRetainSeconds:300}")
+	public void setStatusRetainSeconds(long statusRetainSeconds) {
+		this.retainNanos = TimeUnit.SECONDS.toNanos(statusRetainSeconds);
+	}
+
+	@Value("${smartspace.actions.async.maxInvocations:100000}")
+	public void setMaxInvocations(int maxInvocations) {
+		this.maxInvocations = maxInvocations;
+	}
+
+	@Value("${smartspace.threads.virtual:false}")
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
+	@PostConstruct
+	public void start() {
+		this.partitions = new ExecutorService[Math.max(this.partitionCount, 1)];
+		for (int i = 0; i < this.partitions.length; i++) {
+			// one thread per partition keeps the order, the bounded queue rejects when full
+			this.partitions[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(Math.max(this.queueCapacity, 1)),
+					VirtualThreads.factory("action-partition-" + i, this.virtualThreads));
+		}
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		// the queued actions are still processed
+		for (ExecutorService partition : this.partitions) {
+			partition.shutdown();
+		}
+		for (ExecutorService partition : this.partitions) {
+			if (!partition.awaitTermination(10, TimeUnit.SECONDS)) {
+				logger.warn("actions were still queued at shutdown");
+			}
+		}
+	}
+
+	/**
+	 * Queue an action on the partition of its element.
+	 *
+	 * @param action  the validated action, with its key
+	 * @param process processes and creates the action
+	 * @return the invocation
+	 * @throws ResponseStatusException 429 if the partition is full
+	 */
+	public ActionInvocation submit(ActionEntity action, Supplier<ActionEntity> process) {
+		ActionInvocation invocation = new ActionInvocation(action.getKey(),
+				new UserKey(action.getPlayerSmartspace(), action.getPlayerEmail()));
+		forgetFinished();
+		this.invocations.put(invocation.getKey(), invocation);
+
+		try {
+			this.partitions[partitionOf(action)].execute(() -> {
+				invocation.processing();
+				try {
+					invocation.done(process.get());
+				} catch (RuntimeException e) {
+					invocation.failed(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			this.invocations.remove(invocation.getKey());
+			throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+					"too many actions are waiting for element " + action.getElementId() + ", try again later");
+		}
+		return invocation;
+	}
+
+	/**
+	 * @param key the action key
+	 * @return the invocation, empty if it was not queued here or was forgotten
+	 */
+	public Optional<ActionInvocation> get(ActionKey key) {
+		ActionInvocation invocation = this.invocations.get(key);
+		if (invocation != null && isExpired(invocation, System.nanoTime())) {
+			this.invocations.remove(key, invocation);
+			return Optional.empty();
+		}
+		return Optional.ofNullable(invocation);
+	}
+
+	/**
+	 * @return the number of actions waiting in all partitions
+	 */
+	public int getQueued() {
+		int rv = 0;
+		for (ExecutorService partition : this.partitions) {
+			rv += ((ThreadPoolExecutor) partition).getQueue().size();
+		}
+		return rv;
+	}
+
+	private boolean isExpired(ActionInvocation invocation, long now) {
+		return invocation.isFinished() && now - invocation.getFinishedAt() >= this.retainNanos;
+	}
+
+	private int partitionOf(ActionEntity action) {
+		String element = action.getElementSmartspace() + "#" + action.getElementId();
+		return Math.floorMod(element.hashCode(), this.partitions.length);
+	}
+
+	private void forgetFinished() {
+		if (this.invocations.size() < this.maxInvocations) {
+			return;
+		}
+
+		// the expired ones first, then every finished one if there is still no room
+		long now = System.nanoTime();
+		this.invocations.values().removeIf(invocation -> isExpired(invocation, now));
+		if (this.invocations.size() >= this.maxInvocations) {
+			this.invocations.values().removeIf(ActionInvocation::isFinished);
+		}
+	}
+}
@@ -3,7 +3,11 @@
  */
 package smartspace.infra;
 
+import java.util.List;
+import java.util.Optional;
+
 import smartspace.data.ActionEntity;
+import smartspace.data.ActionKey;
 
 /**
  * The Interface ActionInvokeService.
@@ -17,4 +21,38 @@ public interface ActionInvokeService {
 	 * @return the action entity
 	 */
 	public ActionEntity invokeAction(ActionEntity actionEntity);
+
+	/**
+	 * Invoke a batch of actions. The players and the elements are read once, and
+	 * the actions are created with one bulk insert before their plugins run, so
+	 * an action that failed to be created had no side effects and can be sent
+	 * again. An action whose plugin fails stays created. An invalid action
+	 * doesn't stop the others.
+	 *
+	 * @param actionEntities the action entities
+	 * @return the result of each action, in the same order
+	 */
+	public List<ActionInvocation> invokeActions(List<ActionEntity> actionEntities);
+
+	/**
+	 * Validate an action and queue it. The plugin runs and the action is created
+	 * later, in order with the other actions of its element.
+	 *
+	 * @param actionEntity the action entity
+	 * @return the queued action, with its key
+	 */
+	public ActionEntity invokeActionAsync(ActionEntity actionEntity);
+
+	/**
+	 * Read the state of an action that was invoked asynchronously, by its
+	 * player or an admin.
+	 *
+	 * @param userSmartspace the user smartspace
+	 * @param userEmail      the user email
+	 * @param key            the action key
+	 * @param waitMillis     how long to wait for the action to finish, 0 to not wait
+	 * @return the invocation, empty if it is not known or the user may not read it
+	 */
+	public Optional<ActionInvocation> readInvocation(String userSmartspace, String userEmail, ActionKey key,
+			long waitMillis);
 }
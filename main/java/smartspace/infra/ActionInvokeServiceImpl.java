@@ -3,24 +3,33 @@
  */
 package smartspace.infra;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import smartspace.aop.LoggerService;
+import smartspace.dao.BulkImportException;
 import smartspace.dao.EnhancedActionDao;
 import smartspace.dao.EnhancedElementDao;
 import smartspace.dao.EnhancedUserDao;
 import smartspace.data.ActionEntity;
+import smartspace.data.ActionKey;
 import smartspace.data.ElementEntity;
 import smartspace.data.ElementKey;
-import smartspace.data.UserEntity;
 import smartspace.data.UserKey;
 import smartspace.data.UserRole;
 import smartspace.plugin.Plugin;
+import smartspace.plugin.PluginRegistry;
 
 /**
  * The Class ActionInvokeServiceImpl.
@@ -37,8 +46,17 @@ public class ActionInvokeServiceImpl implements ActionInvokeService {
 	/** The element dao. */
 	private EnhancedElementDao<ElementKey> elementDao; // used to check that action's element was imported before action
 	
-	/** app context. */
-	private ApplicationContext ctx;
+	/** The plugins by action type. */
+	private PluginRegistry plugins;
+
+	/** Processes the actions invoked asynchronously. */
+	private ActionInvokePipeline pipeline;
+
+	/** The longest a client waits for an asynchronous action. */
+	private static final long MAX_WAIT_MILLIS = 30000;
+
+	/** The most actions in one batch. */
+	private int maxBatchSize;
 
 	/**
 	 * Instantiates a new action invoke service impl.
@@ -46,13 +64,22 @@ public class ActionInvokeServiceImpl implements ActionInvokeService {
 	 * @param actionDao  the action dao
 	 * @param elementDao the element dao
 	 * @param userDao    the user dao
+	 * @param plugins    the plugins by action type
+	 * @param pipeline   the asynchronous actions pipeline
 	 */
 	@Autowired
-	public ActionInvokeServiceImpl(EnhancedActionDao actionDao, EnhancedElementDao<ElementKey> elementDao, EnhancedUserDao<UserKey> userDao, ApplicationContext ctx) {
+	public ActionInvokeServiceImpl(EnhancedActionDao actionDao, EnhancedElementDao<ElementKey> elementDao, EnhancedUserDao<UserKey> userDao, PluginRegistry plugins,
+			ActionInvokePipeline pipeline) {
 		this.actionDao = actionDao;
 		this.elementDao = elementDao;
 		this.userDao = userDao;
-		this.ctx = ctx;
+		this.plugins = plugins;
+		this.pipeline = pipeline;
+	}
+
+	@Value("${smartspace.actions.batch.maxSize:500}")
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
 	}
 
 	/**
@@ -64,20 +91,9 @@ public class ActionInvokeServiceImpl implements ActionInvokeService {
 	@Override
 	@LoggerService
 	public ActionEntity invokeAction(ActionEntity actionEntity) {
-		// validate action details
-		actionEntity = validate(actionEntity);
-		actionEntity.setCreationTimestamp(new Date());
-		
-		// for searching by type and for same plugin name
-		actionEntity.setActionType(actionEntity.getActionType());
+		Plugin plugin = prepare(actionEntity);
 
 		try {
-			// "echo" --> smartspace.plugin.EchoActionPlugin
-			String className = getPluginName(actionEntity.getActionType());
-
-			Class<?> theClass = Class.forName(className);
-			Plugin plugin = (Plugin) this.ctx.getBean(theClass);
-
 			// process action and return it after insert to database
 			actionEntity = plugin.process(actionEntity);
 			return this.actionDao.create(actionEntity);
@@ -86,13 +102,166 @@ public class ActionInvokeServiceImpl implements ActionInvokeService {
 		}
 	}
 
+	/**
+	 * Invoke action asynchronously.
+	 *
+	 * @param actionEntity the action entity
+	 * @return the queued action entity
+	 */
+	@Override
+	@LoggerService
+	public ActionEntity invokeActionAsync(ActionEntity actionEntity) {
+		Plugin plugin = prepare(actionEntity);
+
+		// the key is returned now, the action is created with it later
+		actionEntity.setKey(this.actionDao.reserveKey());
+		ActionEntity queued = actionEntity;
+
+		this.pipeline.submit(queued, () -> {
+			try {
+				return this.actionDao.createWithReservedKey(plugin.process(queued));
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		});
+		return queued;
+	}
+
+	@Override
+	public Optional<ActionInvocation> readInvocation(String userSmartspace, String userEmail, ActionKey key,
+			long waitMillis) {
+		UserKey user = new UserKey(userSmartspace, userEmail);
+		boolean admin = this.userDao.readRoleById(user).map(role -> role == UserRole.ADMIN).orElse(false);
+
+		// the action of another player is not known to the user, checked before waiting
+		Optional<ActionInvocation> rv = this.pipeline.get(key)
+				.filter(invocation -> admin || user.equals(invocation.getPlayer()));
+		rv.ifPresent(invocation -> invocation.await(Math.min(waitMillis, MAX_WAIT_MILLIS)));
+		return rv;
+	}
+
+	/**
+	 * Invoke actions.
+	 *
+	 * @param actionEntities the action entities
+	 * @return the result of each action, in the same order
+	 */
+	@Override
+	@LoggerService
+	public List<ActionInvocation> invokeActions(List<ActionEntity> actionEntities) {
+		if (actionEntities.size() > this.maxBatchSize) {
+			throw new RuntimeException("A batch can have at most " + this.maxBatchSize + " actions");
+		}
+
+		int size = actionEntities.size();
+		Plugin[] found = new Plugin[size];
+		RuntimeException[] invalid = new RuntimeException[size];
+
+		// each player is read once, all the elements with one query
+		Map<UserKey, Optional<UserRole>> roles = new HashMap<>();
+		Set<ElementKey> elementKeys = new HashSet<>();
+		for (int i = 0; i < size; i++) {
+			ActionEntity entity = actionEntities.get(i);
+			try {
+				found[i] = this.plugins.get(entity.getActionType()).orElse(null);
+				validateFields(entity, found[i]);
+				found[i].validate(entity);
+				roles.computeIfAbsent(playerKey(entity), this.userDao::readRoleById);
+				elementKeys.add(elementKey(entity));
+			} catch (RuntimeException e) {
+				invalid[i] = e;
+			}
+		}
+		Map<ElementKey, ElementEntity> elements = this.elementDao.readAllById(elementKeys);
+
+		List<ActionInvocation> rv = new ArrayList<>();
+		List<ActionEntity> valid = new ArrayList<>();
+		List<Plugin> validPlugins = new ArrayList<>();
+		List<ActionInvocation> toCreate = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			ActionEntity entity = actionEntities.get(i);
+			ActionInvocation invocation = new ActionInvocation(null, playerKey(entity));
+			rv.add(invocation);
+
+			try {
+				if (invalid[i] != null) {
+					throw invalid[i];
+				}
+				validatePlayer(roles.get(playerKey(entity)));
+				validateElement(Optional.ofNullable(elements.get(elementKey(entity))));
+				entity.setCreationTimestamp(new Date());
+
+				valid.add(entity);
+				validPlugins.add(found[i]);
+				toCreate.add(invocation);
+			} catch (RuntimeException e) {
+				invocation.failed(e);
+			}
+		}
+
+		// the valid actions are inserted together, before any plugin runs
+		Map<Object, String> failures = Collections.emptyMap();
+		try {
+			this.actionDao.createAll(valid);
+		} catch (BulkImportException e) {
+			failures = e.getFailures();
+		}
+
+		for (int i = 0; i < valid.size(); i++) {
+			ActionEntity action = valid.get(i);
+			if (failures.containsKey(action.getKey())) {
+				toCreate.get(i).failed(new RuntimeException(failures.get(action.getKey())));
+				continue;
+			}
+
+			try {
+				toCreate.get(i).done(validPlugins.get(i).process(action));
+			} catch (RuntimeException e) {
+				toCreate.get(i).failed(new RuntimeException(
+						"action " + action.getKey() + " was stored but not processed: " + e.getMessage(), e));
+			}
+		}
+		return rv;
+	}
+
+	/**
+	 * Validate an action and find its plugin.
+	 *
+	 * @param actionEntity the action entity
+	 * @return the plugin of the action type
+	 */
+	private Plugin prepare(ActionEntity actionEntity) {
+		// validate action details
+		Plugin plugin = this.plugins.get(actionEntity.getActionType()).orElse(null);
+		validate(actionEntity, plugin);
+		actionEntity.setCreationTimestamp(new Date());
+
+		return plugin;
+	}
+
 	/**
 	 * Validate.
 	 *
 	 * @param action the action
+	 * @param plugin the plugin of the action type, null if not supported
 	 * @return the action entity
 	 */
-	private ActionEntity validate(ActionEntity entity) {
+	private ActionEntity validate(ActionEntity entity, Plugin plugin) {
+		validateFields(entity, plugin);
+		validatePlayer(userDao.readRoleById(playerKey(entity)));
+		validateElement(elementDao.readById(elementKey(entity)));
+
+		return entity;
+	}
+
+	/**
+	 * Validate the fields and the type of an action, without reading the
+	 * database.
+	 *
+	 * @param entity the action
+	 * @param plugin the plugin of the action type, null if not supported
+	 */
+	private void validateFields(ActionEntity entity, Plugin plugin) {
 		if (isEmpty(entity.getActionType())) {
 			throw new RuntimeException("Action type must not be empty");
 		}
@@ -112,56 +281,38 @@ public class ActionInvokeServiceImpl implements ActionInvokeService {
 			throw new RuntimeException("Attributes must be defined");
 		}
 
-		if (!checkActionType(entity.getActionType())) {
-			throw new RuntimeException("Action type is not supported: " + entity.getActionType() + " - plugin class not found [" + getPluginName(entity.getActionType()) + "]");
+		if (plugin == null) {
+			throw new RuntimeException("Action type is not supported: " + entity.getActionType());
 		}
+	}
 
-		Optional<UserEntity> userOp = userDao.readById(new UserKey(entity.getPlayerSmartspace(), entity.getPlayerEmail()));
-		if (!userOp.isPresent()) {
+	private void validatePlayer(Optional<UserRole> roleOp) {
+		if (!roleOp.isPresent()) {
 			throw new RuntimeException("User not found");
 		}
-		else if (userOp.get().getRole() != UserRole.PLAYER) {
+		else if (roleOp.get() != UserRole.PLAYER) {
 			throw new RuntimeException("Only players can invoke actions");
 		}
-		
-		Long elementId = Long.parseLong(entity.getElementId());
-		Optional<ElementEntity> elememtOp = elementDao.readById(new ElementKey(entity.getElementSmartspace(), elementId));
+	}
+
+	private void validateElement(Optional<ElementEntity> elememtOp) {
 		if (!elememtOp.isPresent()) {
 			throw new RuntimeException("the action is invoked on a non existing element");
 		}
 		else if (elememtOp.get().getExpired()) {
 			throw new RuntimeException("element is expired");
 		}
-		
-		return entity;
 	}
-	
-	private boolean isEmpty(String str) {
-		return (str == null || str.trim().isEmpty());
+
+	private UserKey playerKey(ActionEntity entity) {
+		return new UserKey(entity.getPlayerSmartspace(), entity.getPlayerEmail());
 	}
 
-	/**
-	 * Check action type.
-	 *
-	 * @param checkType the check type
-	 * @return true, if successful
-	 */
-	private boolean checkActionType(String checkType) {
-		try {
-			Class.forName(getPluginName(checkType));
-		} catch (ClassNotFoundException e) {
-			return false;
-		}
-		
-		return true;
+	private ElementKey elementKey(ActionEntity entity) {
+		return new ElementKey(entity.getElementSmartspace(), Long.parseLong(entity.getElementId()));
 	}
 	
-	private String getPluginName(String actionType) {
-		//String name = actionType.toLowerCase(); // just to make sure
-		
-		String name = actionType;
-		String className = "smartspace.plugin." + name.toUpperCase().charAt(0) + name.substring(1, name.length()) + "ActionPlugin";
-		
-		return className;
+	private boolean isEmpty(String str) {
+		return (str == null || str.trim().isEmpty());
 	}
 }
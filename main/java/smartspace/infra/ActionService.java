@@ -1,7 +1,10 @@
 package smartspace.infra;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 import smartspace.data.ActionEntity;
+import smartspace.data.ActionKey;
 
 public interface ActionService {
 	
@@ -11,6 +14,15 @@ public interface ActionService {
 	// need to check if user exists and has ADMIN role when you get a request.
 	public List<ActionEntity> getUsingPagination (String adminSmartspace, String adminEmail, int size, int page);
 
+	// keyset paging, after is the last key of the previous page or null for the first page
+	public List<ActionEntity> getUsingKeyset(String adminSmartspace, String adminEmail, ActionKey after, int size);
+
+	// one chunk of a streamed import, the rejected actions are counted in the summary
+	public void importActionsChunk(String adminSmartspace, String adminEmail, List<ActionEntity> chunk, ImportSummary summary);
+
+	// export, every action created or imported at or after modifiedSince (all when null) from one cursor, the caller closes the stream
+	public Stream<ActionEntity> streamActions(String adminSmartspace, String adminEmail, Date modifiedSince);
+
 }
 
 
@@ -1,18 +1,24 @@
 package smartspace.infra;
 
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import smartspace.aop.AdminOnly;
 import smartspace.aop.LoggerService;
 import smartspace.dao.EnhancedActionDao;
 import smartspace.dao.EnhancedElementDao;
 import smartspace.data.ActionEntity;
+import smartspace.data.ActionKey;
 import smartspace.data.ElementKey;
 
 @Service
@@ -21,6 +27,7 @@ public class ActionServiceImpl implements ActionService {
 	private EnhancedActionDao actionDao;
 	private EnhancedElementDao<ElementKey> elementDao; // used to check that action's element was imported before action
 	private String appSmartspace;
+	private int importBatchSize;
 
 	@Autowired
 	public ActionServiceImpl(EnhancedActionDao actionDao, EnhancedElementDao<ElementKey> elementDao) {
@@ -33,12 +40,18 @@ public class ActionServiceImpl implements ActionService {
 		this.appSmartspace = appSmartspace;
 	}
 
+	@Value("${smartspace.import.batchSize:1000}")
+	public void setImportBatchSize(int importBatchSize) {
+		this.importBatchSize = importBatchSize;
+	}
+
 	@Override
-	@Transactional
 	@AdminOnly
 	@LoggerService
 	public List<ActionEntity> importActions(String adminSmartspace, String adminEmail, List<ActionEntity> entities) {
-		return entities.stream().map(this::validate).map(this.actionDao::importAction).collect(Collectors.toList());
+		// validate and bulk write batch by batch, no transaction around the whole import
+		return BatchImport.importAll(entities, this.importBatchSize, this::validate,
+				this.actionDao::importActions, "actions");
 	}
 
 	@Override
@@ -48,32 +61,85 @@ public class ActionServiceImpl implements ActionService {
 		return this.actionDao.readAllWithPaging("key", size, page);
 	}
 
-	private ActionEntity validate(ActionEntity action) {
-		if (!isValid(action)) {
+	@Override
+	@AdminOnly
+	@LoggerService
+	public List<ActionEntity> getUsingKeyset(String adminSmartspace, String adminEmail, ActionKey after, int size) {
+		return this.actionDao.readAllAfter(after, size);
+	}
+
+	@Override
+	@AdminOnly
+	@LoggerService
+	public void importActionsChunk(String adminSmartspace, String adminEmail, List<ActionEntity> chunk, ImportSummary summary) {
+		BatchImport.importChunk(chunk, this::invalidActions, this.actionDao::importActions, ActionEntity::getKey, summary);
+	}
+
+	@Override
+	@AdminOnly
+	@LoggerService
+	public Stream<ActionEntity> streamActions(String adminSmartspace, String adminEmail, Date modifiedSince) {
+		return this.actionDao.streamAll(modifiedSince);
+	}
+
+	private void validate(List<ActionEntity> actions) {
+		if (!actions.stream().allMatch(this::isValid)) {
+			throw new RuntimeException("one or more of the given actions are invalid");
+		}
+
+		// the actions' elements need to be in the database (must import elements
+		// before actions), all of them are read with one query
+		Set<ElementKey> elementKeys = actions.stream()
+				.map(action -> new ElementKey(action.getElementSmartspace(), Long.parseLong(action.getElementId())))
+				.collect(Collectors.toSet());
+
+		if (this.elementDao.readExistingKeys(elementKeys).size() != elementKeys.size()) {
 			throw new RuntimeException("one or more of the given actions are invalid");
 		}
-		return action;
+	}
+
+	private Map<Integer, String> invalidActions(List<ActionEntity> actions) {
+		Map<Integer, String> rv = new HashMap<>();
+		Set<ElementKey> elementKeys = new HashSet<>();
+		for (int i = 0; i < actions.size(); i++) {
+			if (isValid(actions.get(i))) {
+				elementKeys.add(elementKeyOf(actions.get(i)));
+			} else {
+				rv.put(i, "invalid action");
+			}
+		}
+
+		// the elements of the whole chunk are checked with one query
+		Set<ElementKey> existing = this.elementDao.readExistingKeys(elementKeys);
+		for (int i = 0; i < actions.size(); i++) {
+			if (!rv.containsKey(i) && !existing.contains(elementKeyOf(actions.get(i)))) {
+				rv.put(i, "the element of the action was not imported");
+			}
+		}
+		return rv;
+	}
+
+	private ElementKey elementKeyOf(ActionEntity action) {
+		return new ElementKey(action.getElementSmartspace(), Long.parseLong(action.getElementId()));
 	}
 
 	private boolean isValid(ActionEntity entity) {
-		boolean actionIsValid = (entity.getActionSmartspace() != null
+		return entity.getActionSmartspace() != null
 				&& !entity.getActionSmartspace().equals(appSmartspace) && notEmpty(entity.getActionId())
 				&& entity.getCreationTimestamp() != null && notEmpty(entity.getElementId())
 				&& notEmpty(entity.getElementSmartspace()) && notEmpty(entity.getPlayerSmartspace())
 				&& notEmpty(entity.getPlayerEmail()) && notEmpty(entity.getActionType()) && entity.getKey() != null
-				&& notEmpty(entity.getKey().getActionSmartspace()) && entity.getMoreAttributes() != null);
+				&& notEmpty(entity.getKey().getActionSmartspace()) && entity.getMoreAttributes() != null
+				&& isNumber(entity.getElementId());
+	}
 
-		// return false when action data is invalid
-		if (!actionIsValid) {
+	private boolean isNumber(String str) {
+		try {
+			Long.parseLong(str);
+			return true;
+		} catch (NumberFormatException e) {
 			return false;
 		}
-
-		// data is valid -> the action's element needs to be in the database (must
-		// import elements before actions)
-		Long elementId = Long.parseLong(entity.getElementId());
-		return elementDao.readById(new ElementKey(entity.getElementSmartspace(), elementId)).isPresent(); // return if
-																											// element
-																											// exists
 	}
 
 	private boolean notEmpty(String str) {
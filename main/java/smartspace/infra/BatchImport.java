@@ -0,0 +1,136 @@
+package smartspace.infra;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import smartspace.dao.BulkImportException;
+
+/**
+ * Imports a list of entities in batches of batchSize: each batch is validated
+ * and then written with one bulk write.
+ * <p>
+ * Batches are not rolled back when a later batch fails. A batch that fails
+ * validation stops the import, and the message tells how many entities were
+ * imported before it. Entities that could not be written don't stop the
+ * import; they are reported together once all batches were written.
+ * <p>
+ * A streamed import is written chunk by chunk with importChunk, where invalid
+ * entities are skipped and counted instead of stopping the import.
+ */
+class BatchImport {
+	private static final int REPORTED_FAILURES = 10;
+
+	private BatchImport() {
+	}
+
+	/**
+	 * Import the entities.
+	 *
+	 * @param entities  the entities
+	 * @param batchSize the batch size
+	 * @param validate  validates a batch, throws if one of them is invalid
+	 * @param write     writes a batch
+	 * @param name      the name of the entities in messages
+	 * @return the imported entities
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> List<T> importAll(List<T> entities, int batchSize, Consumer<List<T>> validate,
+			Function<List<T>, List<T>> write, String name) {
+		int size = Math.max(batchSize, 1);
+		List<T> rv = new ArrayList<>();
+		Map<Object, String> failures = new LinkedHashMap<>();
+
+		for (int from = 0; from < entities.size(); from += size) {
+			List<T> batch = entities.subList(from, Math.min(from + size, entities.size()));
+
+			try {
+				validate.accept(batch);
+			} catch (RuntimeException e) {
+				if (rv.isEmpty() && failures.isEmpty()) {
+					throw e;
+				}
+				throw new RuntimeException(e.getMessage() + ", " + rv.size() + " of " + entities.size() + " "
+						+ name + " were imported before the invalid batch", e);
+			}
+
+			try {
+				rv.addAll(write.apply(batch));
+			} catch (BulkImportException e) {
+				rv.addAll((List<T>) e.getImported());
+				failures.putAll(e.getFailures());
+			}
+		}
+
+		if (!failures.isEmpty()) {
+			String reported = failures.entrySet().stream().limit(REPORTED_FAILURES)
+					.map(failure -> failure.getKey() + ": " + failure.getValue()).collect(Collectors.joining("; "));
+
+			throw new ResponseStatusException(HttpStatus.CONFLICT, "imported " + rv.size() + " of " + entities.size()
+					+ " " + name + ", " + failures.size() + " failed: " + reported
+					+ (failures.size() > REPORTED_FAILURES ? "; ..." : ""));
+		}
+		return rv;
+	}
+
+	/**
+	 * Import one chunk of a streamed import. Invalid entities and entities
+	 * that could not be written are counted in the summary, the others are
+	 * written with one bulk write.
+	 *
+	 * @param chunk    the entities
+	 * @param validate the reason each invalid entity is rejected, by index
+	 * @param write    writes the valid entities
+	 * @param key      the key of an entity, to report it
+	 * @param summary  the summary of the import
+	 */
+	static <T> void importChunk(List<T> chunk, Function<List<T>, Map<Integer, String>> validate,
+			Function<List<T>, List<T>> write, Function<T, Object> key, ImportSummary summary) {
+		if (chunk.isEmpty()) {
+			return;
+		}
+
+		Map<Integer, String> invalid = validate.apply(chunk);
+		List<T> valid = new ArrayList<>();
+		for (int i = 0; i < chunk.size(); i++) {
+			if (invalid.containsKey(i)) {
+				summary.recordFailed(String.valueOf(key.apply(chunk.get(i))), invalid.get(i));
+			} else {
+				valid.add(chunk.get(i));
+			}
+		}
+
+		try {
+			summary.recordImported(write.apply(valid).size());
+		} catch (BulkImportException e) {
+			summary.recordImported(e.getImported().size());
+			e.getFailures().forEach((failedKey, message) -> summary.recordFailed(String.valueOf(failedKey), message));
+		}
+	}
+
+	/**
+	 * @param isValid checks one entity
+	 * @param message the reason an invalid entity is rejected
+	 * @return validates a chunk entity by entity
+	 */
+	static <T> Function<List<T>, Map<Integer, String>> each(Predicate<T> isValid, String message) {
+		return chunk -> {
+			Map<Integer, String> rv = new HashMap<>();
+			for (int i = 0; i < chunk.size(); i++) {
+				if (!isValid.test(chunk.get(i))) {
+					rv.put(i, message);
+				}
+			}
+			return rv;
+		};
+	}
+}
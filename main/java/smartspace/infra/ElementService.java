@@ -1,7 +1,10 @@
 package smartspace.infra;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 import smartspace.data.ElementEntity;
+import smartspace.data.ElementKey;
 
 public interface ElementService {
 	
@@ -11,6 +14,15 @@ public interface ElementService {
 	// need to check if user exists and has ADMIN role when you get a request.
 	public List<ElementEntity> getUsingPagination (String adminSmartspace, String adminEmail, int size, int page);
 
+	// keyset paging, after is the last key of the previous page or null for the first page
+	public List<ElementEntity> getUsingKeyset(String adminSmartspace, String adminEmail, ElementKey after, int size);
+
+	// one chunk of a streamed import, the rejected elements are counted in the summary
+	public void importElementsChunk(String adminSmartspace, String adminEmail, List<ElementEntity> chunk, ImportSummary summary);
+
+	// export, every element changed at or after modifiedSince (all when null) from one cursor, the caller closes the stream
+	public Stream<ElementEntity> streamElements(String adminSmartspace, String adminEmail, Date modifiedSince);
+
 }
 
 
@@ -39,6 +39,8 @@ public class ElementServiceForManagerOnlylmpl implements ElementServiceForManage
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Element name must not be empty");
 		if (newElement.getLocation() == null)
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Location must not be empty");
+		if (!newElement.getLocation().isValid())
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Location must be a latitude (-90..90) and longitude (-180..180)");
 		if (newElement.getMoreAttributes() == null)
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Attributes must not be empty");
 		
@@ -6,6 +6,7 @@ package smartspace.infra;
 import java.util.List;
 
 import smartspace.data.ElementEntity;
+import smartspace.data.ElementKey;
 import smartspace.data.UserRole;
 
 /**
@@ -43,4 +44,35 @@ public interface ElementServiceForManagerOrPlayer {
 
 	// search = location
 	List<ElementEntity> getElementsByLocation(UserRole role, String userSmartspace, String userEmail, Double x, Double y, Double distance, int size, int page);
+
+	/**
+	 * Gets the elements using keyset paging.
+	 *
+	 * @param role           the role
+	 * @param userSmartspace the user smartspace
+	 * @param userEmail      the user email
+	 * @param after          the last key of the previous page, null for the first page
+	 * @param size           the size
+	 * @return the elements using keyset paging
+	 */
+	public List<ElementEntity> getElementsUsingKeyset(UserRole role, String userSmartspace, String userEmail,
+			ElementKey after, int size);
+
+	/**
+	 * Gets the elements search by value using keyset paging.
+	 *
+	 * @param role           the role
+	 * @param userSmartspace the user smartspace
+	 * @param userEmail      the user email
+	 * @param searchBy       the search by
+	 * @param value          the value
+	 * @param after          the last key of the previous page, null for the first page
+	 * @param size           the size
+	 * @return the elements search by value using keyset paging
+	 */
+	public List<ElementEntity> getElementsSearchByValueUsingKeyset(UserRole role, String userSmartspace,
+			String userEmail, String searchBy, String value, ElementKey after, int size);
+
+	// search = location, keyset paging
+	List<ElementEntity> getElementsByLocationUsingKeyset(UserRole role, String userSmartspace, String userEmail, Double x, Double y, Double distance, ElementKey after, int size);
 }
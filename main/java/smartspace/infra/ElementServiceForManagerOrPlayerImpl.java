@@ -16,6 +16,7 @@ import smartspace.aop.PlayerOrManagerGetRole;
 import smartspace.dao.EnhancedElementDao;
 import smartspace.data.ElementEntity;
 import smartspace.data.ElementKey;
+import smartspace.data.Location;
 import smartspace.data.UserRole;
 
 /**
@@ -89,6 +90,46 @@ public class ElementServiceForManagerOrPlayerImpl implements ElementServiceForMa
 	@LoggerService
 	public List<ElementEntity> getElementsByLocation(UserRole role, String userSmartspace, String userEmail, Double x, Double y, Double distance, int size, int page) {
 		boolean includeExpired = (role == UserRole.MANAGER);
+		checkSearchLocation(x, y, distance);
 		return this.elementDao.searchByLocation(includeExpired, x, y, distance, size, page);
 	}
+
+	@Override
+	@PlayerOrManagerGetRole
+	@LoggerService
+	public List<ElementEntity> getElementsUsingKeyset(UserRole role, String userSmartspace, String userEmail, ElementKey after, int size) {
+		boolean showExpired = (role == UserRole.MANAGER);
+		return elementDao.readAllUsingKeyset(showExpired, after, size);
+	}
+
+	@Override
+	@PlayerOrManagerGetRole
+	@LoggerService
+	public List<ElementEntity> getElementsSearchByValueUsingKeyset(UserRole role, String userSmartspace, String userEmail, String searchBy, String value, ElementKey after, int size) {
+		boolean showExpired = (role == UserRole.MANAGER);
+		// search by value if search argument is one of these keys
+		String[] searchKeysByValue = { "name", "type" };
+
+		if (Arrays.asList(searchKeysByValue).contains(searchBy)) {
+			return elementDao.readAllWithSameValuesUsingKeyset(showExpired, searchBy, value, after, size);
+		} else {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search by this value is not valid: " + searchBy);
+		}
+	}
+
+	@Override
+	@PlayerOrManagerGetRole
+	@LoggerService
+	public List<ElementEntity> getElementsByLocationUsingKeyset(UserRole role, String userSmartspace, String userEmail, Double x, Double y, Double distance, ElementKey after, int size) {
+		boolean includeExpired = (role == UserRole.MANAGER);
+		checkSearchLocation(x, y, distance);
+		return this.elementDao.searchByLocationUsingKeyset(includeExpired, x, y, distance, after, size);
+	}
+
+	private void checkSearchLocation(Double x, Double y, Double distance) {
+		if (x == null || y == null || distance == null || !new Location(x, y).isValid() || !(distance >= 0)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"Search by location needs a latitude x, a longitude y and a distance that is not negative");
+		}
+	}
 }
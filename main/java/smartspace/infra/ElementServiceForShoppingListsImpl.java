@@ -23,14 +23,8 @@ public class ElementServiceForShoppingListsImpl implements ElementServiceForShop
 
 	@Override
 	public List<ElementEntity> getShoppingListsUsingPagination(String userSmartspace, String userEmail, int size, int page) {
-		
-		// add all lists where user is a member
-		List<ElementEntity> allShoppingLists = this.elementDao.readAllListsByMember(userSmartspace, userEmail, size, page);
-		
-		// add all lists where user created the list
-		allShoppingLists.addAll(this.elementDao.readAllListsByCreator(userSmartspace, userEmail, size, page));
-		
-		return allShoppingLists;
+		// all lists where user created the list or is a member, one page
+		return this.elementDao.readAllListsByCreatorOrMember(userSmartspace, userEmail, size, page);
 	}
 	
 	@Override
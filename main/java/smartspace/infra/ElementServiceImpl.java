@@ -1,12 +1,12 @@
 package smartspace.infra;
 
+import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import smartspace.aop.AdminOnly;
 import smartspace.aop.LoggerService;
@@ -19,6 +19,7 @@ public class ElementServiceImpl implements ElementService {
 
 	private EnhancedElementDao<ElementKey> elementDao; // used for element saving and reading
 	private String appSmartspace;
+	private int importBatchSize;
 
 	@Autowired
 	public ElementServiceImpl(EnhancedElementDao<ElementKey> elementDao) {
@@ -30,12 +31,18 @@ public class ElementServiceImpl implements ElementService {
 		this.appSmartspace = appSmartspace;
 	}
 
+	@Value("${smartspace.import.batchSize:1000}")
+	public void setImportBatchSize(int importBatchSize) {
+		this.importBatchSize = importBatchSize;
+	}
+
 	@Override
-	@Transactional
 	@AdminOnly
 	@LoggerService
 	public List<ElementEntity> importElements(String adminSmartspace, String adminEmail, List<ElementEntity> entities) {
-		return entities.stream().map(this::validate).map(this.elementDao::importElement).collect(Collectors.toList());
+		// validate and bulk write batch by batch, no transaction around the whole import
+		return BatchImport.importAll(entities, this.importBatchSize, batch -> batch.forEach(this::validate),
+				this.elementDao::importElements, "elements");
 	}
 
 	@Override
@@ -45,6 +52,28 @@ public class ElementServiceImpl implements ElementService {
 		return this.elementDao.readAllWithPaging("key", size, page);
 	}
 
+	@Override
+	@AdminOnly
+	@LoggerService
+	public List<ElementEntity> getUsingKeyset(String adminSmartspace, String adminEmail, ElementKey after, int size) {
+		return this.elementDao.readAllAfter(after, size);
+	}
+
+	@Override
+	@AdminOnly
+	@LoggerService
+	public void importElementsChunk(String adminSmartspace, String adminEmail, List<ElementEntity> chunk, ImportSummary summary) {
+		BatchImport.importChunk(chunk, BatchImport.each(this::isValid, "invalid element"),
+				this.elementDao::importElements, ElementEntity::getKey, summary);
+	}
+
+	@Override
+	@AdminOnly
+	@LoggerService
+	public Stream<ElementEntity> streamElements(String adminSmartspace, String adminEmail, Date modifiedSince) {
+		return this.elementDao.streamAll(modifiedSince);
+	}
+
 	private ElementEntity validate(ElementEntity entity) {
 		if (!isValid(entity)) {
 			throw new RuntimeException("one or more of the given elements are invalid");
@@ -58,7 +87,7 @@ public class ElementServiceImpl implements ElementService {
 				&& notEmpty(entity.getElementId()) && notEmpty(entity.getElementSmartspace())
 				&& notEmpty(entity.getName()) && notEmpty(entity.getType()) && entity.getKey() != null
 				&& notEmpty(entity.getKey().getElementSmartspace()) && entity.getLocation() != null
-				&& entity.getMoreAttributes() != null;
+				&& entity.getLocation().isValid() && entity.getMoreAttributes() != null;
 	}
 
 	private boolean notEmpty(String str) {
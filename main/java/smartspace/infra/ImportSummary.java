@@ -0,0 +1,65 @@
+package smartspace.infra;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts of a streamed import and the first errors, returned instead of the
+ * imported entities.
+ */
+public class ImportSummary {
+	private static final int REPORTED_ERRORS = 20;
+
+	private long read;
+	private long imported;
+	private long failed;
+	private List<String> errors;
+
+	public ImportSummary() {
+		this.errors = new ArrayList<>();
+	}
+
+	public void recordRead() {
+		this.read++;
+	}
+
+	public void recordImported(int count) {
+		this.imported += count;
+	}
+
+	/**
+	 * @param where   the line or the key of the record
+	 * @param message why it was not imported
+	 */
+	public void recordFailed(String where, String message) {
+		this.failed++;
+		if (this.errors.size() < REPORTED_ERRORS) {
+			this.errors.add(where + ": " + message);
+		}
+	}
+
+	public long getRead() {
+		return read;
+	}
+
+	public long getImported() {
+		return imported;
+	}
+
+	public long getFailed() {
+		return failed;
+	}
+
+	/**
+	 * @return the first errors, the others are only counted
+	 */
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	@Override
+	public String toString() {
+		return "ImportSummary [read=" + read + ", imported=" + imported + ", failed=" + failed + ", errors=" + errors
+				+ "]";
+	}
+}
@@ -0,0 +1,10 @@
+package smartspace.infra;
+
+import java.util.Map;
+
+public interface MetricsService {
+
+	// need to check if user exists and has ADMIN role when you get a request.
+	public Map<String, Object> readMetrics(String adminSmartspace, String adminEmail);
+
+}
@@ -0,0 +1,34 @@
+package smartspace.infra;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import smartspace.aop.AdminOnly;
+import smartspace.aop.ServiceMetrics;
+import smartspace.dao.EnhancedUserDao;
+import smartspace.data.UserKey;
+
+@Service
+public class MetricsServiceImpl implements MetricsService {
+	private EnhancedUserDao<UserKey> userDao;
+	private ServiceMetrics serviceMetrics;
+
+	@Autowired
+	public MetricsServiceImpl(EnhancedUserDao<UserKey> userDao, ServiceMetrics serviceMetrics) {
+		this.userDao = userDao;
+		this.serviceMetrics = serviceMetrics;
+	}
+
+	@Override
+	@AdminOnly
+	public Map<String, Object> readMetrics(String adminSmartspace, String adminEmail) {
+		Map<String, Object> rv = new LinkedHashMap<>();
+		rv.put("userIdentityCache", this.userDao.readIdentityCacheStats());
+		rv.put("services", this.serviceMetrics.getStats());
+		return rv;
+	}
+
+}
@@ -9,7 +9,6 @@ import smartspace.dao.EnhancedElementDao;
 import smartspace.dao.EnhancedUserDao;
 import smartspace.data.ElementEntity;
 import smartspace.data.ElementKey;
-import smartspace.data.UserEntity;
 import smartspace.data.UserKey;
 import smartspace.data.UserRole;
 
@@ -31,6 +30,9 @@ public class UpdateElementServiceImpl implements UpdateElementService {
 	//@managerOnly
 	public void updateElement(String managerSmartspace, String managerEmail, ElementEntity elementEntity) {
 		if(checkIfUserIsManager(managerSmartspace,managerEmail)) {
+			if (elementEntity.getLocation() != null && !elementEntity.getLocation().isValid()) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Location must be a latitude (-90..90) and longitude (-180..180)");
+			}
 			this.elementDao.update(elementEntity); // if the elementEntity not in DB elementDao.update() throw runTimeExepcion
 		}
 		else {
@@ -39,10 +41,10 @@ public class UpdateElementServiceImpl implements UpdateElementService {
 	}
 
 	private boolean checkIfUserIsManager(String managerSmartspace, String managerEmail) {
-		UserEntity user = this.userDao.readById(new UserKey(managerSmartspace, managerEmail)).orElseThrow(
+		UserRole role = this.userDao.readRoleById(new UserKey(managerSmartspace, managerEmail)).orElseThrow(
 				()->new ResponseStatusException(HttpStatus.BAD_REQUEST, "user not in DB"));
 
-		if(user.getRole() != UserRole.MANAGER)
+		if(role != UserRole.MANAGER)
 			return false;
 		else
 			return true;
@@ -1,7 +1,10 @@
 package smartspace.infra;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 import smartspace.data.UserEntity;
+import smartspace.data.UserKey;
 
 public interface UserService {
 	
@@ -11,6 +14,15 @@ public interface UserService {
 	// need to check if user exists and has ADMIN role when you get a request.
 	public List<UserEntity> getUsingPagination (String adminSmartspace, String adminEmail, int size, int page);
 
+	// keyset paging, after is the last key of the previous page or null for the first page
+	public List<UserEntity> getUsingKeyset(String adminSmartspace, String adminEmail, UserKey after, int size);
+
+	// one chunk of a streamed import, the rejected users are counted in the summary
+	public void importUsersChunk(String adminSmartspace, String adminEmail, List<UserEntity> chunk, ImportSummary summary);
+
+	// export, every user changed at or after modifiedSince (all when null) from one cursor, the caller closes the stream
+	public Stream<UserEntity> streamUsers(String adminSmartspace, String adminEmail, Date modifiedSince);
+
 }
 
 
@@ -1,12 +1,12 @@
 package smartspace.infra;
 
+import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import smartspace.aop.AdminOnly;
 import smartspace.aop.LoggerService;
@@ -19,6 +19,7 @@ public class UserServiceImpl implements UserService {
 
 	private EnhancedUserDao<UserKey> userDao;
 	private String appSmartspace;
+	private int importBatchSize;
 
 	@Autowired
 	public UserServiceImpl(EnhancedUserDao<UserKey> userDao) {
@@ -30,12 +31,18 @@ public class UserServiceImpl implements UserService {
 		this.appSmartspace = appSmartspace;
 	}
 
+	@Value("${smartspace.import.batchSize:1000}")
+	public void setImportBatchSize(int importBatchSize) {
+		this.importBatchSize = importBatchSize;
+	}
+
 	@Override
-	@Transactional
 	@AdminOnly
 	@LoggerService
 	public List<UserEntity> importUsers(String adminSmartspace, String adminEmail, List<UserEntity> entities) {
-		return entities.stream().map(this::validate).map(this.userDao::importUser).collect(Collectors.toList());
+		// validate and bulk write batch by batch, no transaction around the whole import
+		return BatchImport.importAll(entities, this.importBatchSize, batch -> batch.forEach(this::validate),
+				this.userDao::importUsers, "users");
 	}
 
 	@Override
@@ -45,6 +52,28 @@ public class UserServiceImpl implements UserService {
 		return this.userDao.readAllWithPaging("key", size, page);
 	}
 
+	@Override
+	@AdminOnly
+	@LoggerService
+	public List<UserEntity> getUsingKeyset(String adminSmartspace, String adminEmail, UserKey after, int size) {
+		return this.userDao.readAllAfter(after, size);
+	}
+
+	@Override
+	@AdminOnly
+	@LoggerService
+	public void importUsersChunk(String adminSmartspace, String adminEmail, List<UserEntity> chunk, ImportSummary summary) {
+		BatchImport.importChunk(chunk, BatchImport.each(this::isValid, "invalid user"),
+				this.userDao::importUsers, UserEntity::getKey, summary);
+	}
+
+	@Override
+	@AdminOnly
+	@LoggerService
+	public Stream<UserEntity> streamUsers(String adminSmartspace, String adminEmail, Date modifiedSince) {
+		return this.userDao.streamAll(modifiedSince);
+	}
+
 	private UserEntity validate(UserEntity user) {
 		if (!isValid(user)) {
 			throw new RuntimeException("one or more of the given users are invalid");
@@ -0,0 +1,77 @@
+package smartspace.infra;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads of the application's executors: virtual threads when
+ * smartspace.threads.virtual is set, daemon platform threads otherwise.
+ * <p>
+ * Virtual threads are created by reflection, the application is built for
+ * older Java versions and they need Java 21.
+ */
+public final class VirtualThreads {
+	private VirtualThreads() {
+	}
+
+	/**
+	 * @return whether this JVM can create virtual threads
+	 */
+	public static boolean isSupported() {
+		try {
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @param name    the threads are named name-1, name-2, ...
+	 * @param virtual whether to create virtual threads
+	 * @return the thread factory
+	 * @throws IllegalStateException if virtual threads are asked for and this
+	 *                               JVM has none
+	 */
+	public static ThreadFactory factory(String name, boolean virtual) {
+		if (virtual) {
+			return virtualFactory(name);
+		}
+
+		AtomicInteger threads = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * @param name the threads are named name-1, name-2, ...
+	 * @return an executor starting a new virtual thread per task
+	 */
+	public static Executor perTaskExecutor(String name) {
+		ThreadFactory threads = virtualFactory(name);
+		return task -> threads.newThread(task).start();
+	}
+
+	private static ThreadFactory virtualFactory(String name) {
+		if (!isSupported()) {
+			throw new IllegalStateException(
+					"virtual threads need Java 21, running on " + System.getProperty("java.version"));
+		}
+
+		try {
+			// Thread.ofVirtual().name(name + "-", 1).factory()
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			Method named = builderType.getMethod("name", String.class, long.class);
+			builder = named.invoke(builder, name + "-", 1L);
+			return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("could not create virtual threads", e);
+		}
+	}
+}
@@ -1,28 +1,50 @@
 package smartspace.layout;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import smartspace.aop.AdminCheck;
 import smartspace.data.ActionEntity;
 import smartspace.infra.ActionService;
+import smartspace.infra.ImportSummary;
 
 @RestController
 public class ActionController {
 	private ActionService actionService;
+	private AdminCheck adminCheck;
+	private ObjectMapper jackson;
+	private int importChunkSize;
 
 	@Autowired
-	public ActionController(ActionService actionService) {
+	public ActionController(ActionService actionService, AdminCheck adminCheck, ObjectMapper jackson) {
 		this.actionService = actionService;
+		this.adminCheck = adminCheck;
+		this.jackson = jackson;
+	}
+
+	@Value("${smartspace.import.batchSize:1000}")
+	public void setImportChunkSize(int importChunkSize) {
+		this.importChunkSize = importChunkSize;
 	}
 
 	@RequestMapping(path = "/smartspace/admin/actions/{adminSmartspace}/{adminEmail}", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
@@ -42,14 +64,47 @@ public class ActionController {
 
 	@RequestMapping(path = "/smartspace/admin/actions/{adminSmartspace}/{adminEmail}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
 
-	public ActionBoundary[] getUsingPagination(@PathVariable("adminSmartspace") String adminSmartspace,
+	public ResponseEntity<ActionBoundary[]> getUsingPagination(@PathVariable("adminSmartspace") String adminSmartspace,
 			@PathVariable("adminEmail") String adminEmail,
 			@RequestParam(name = "size", required = false, defaultValue = "10") int size,
-			@RequestParam(name = "page", required = false, defaultValue = "0") int page) {
+			@RequestParam(name = "page", required = false, defaultValue = "0") int page,
+			@RequestParam(name = "continuation", required = false) String continuation) {
+		if (continuation != null) {
+			// keyset paging, seek past the key of the last page
+			List<ActionEntity> entities = this.actionService.getUsingKeyset(adminSmartspace, adminEmail,
+					ContinuationToken.decodeActionKey(continuation), size);
+			String next = entities.isEmpty() ? null
+					: ContinuationToken.encode(entities.get(entities.size() - 1).getKey());
+
+			return ContinuationToken.page(toBoundary(entities), size, next);
+		}
 
 		// convert the Entity List to Boundary Array
-		return this.actionService.getUsingPagination(adminSmartspace, adminEmail, size, page).stream()
-				.map(ActionBoundary::new).collect(Collectors.toList()).toArray(new ActionBoundary[0]);
+		return ResponseEntity.ok(toBoundary(this.actionService.getUsingPagination(adminSmartspace, adminEmail, size, page)));
+	}
+
+	// one line of JSON per action, only the ones created or imported at or after modifiedSince when it is given
+	@RequestMapping(path = "/smartspace/admin/actions/{adminSmartspace}/{adminEmail}/export", method = RequestMethod.GET, produces = NdjsonExport.MEDIA_TYPE)
+
+	public ResponseEntity<StreamingResponseBody> exportActions(@PathVariable("adminSmartspace") String adminSmartspace,
+			@PathVariable("adminEmail") String adminEmail,
+			@RequestParam(name = NdjsonExport.MODIFIED_SINCE, required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date modifiedSince) {
+		return NdjsonExport.body(this.jackson, this.actionService.streamActions(adminSmartspace, adminEmail, modifiedSince), ActionBoundary::new);
+	}
+
+	// one line of JSON per action, read and imported in chunks while the body arrives
+	@RequestMapping(path = "/smartspace/admin/actions/{adminSmartspace}/{adminEmail}/import", method = RequestMethod.POST, consumes = NdjsonExport.MEDIA_TYPE, produces = MediaType.APPLICATION_JSON_VALUE)
+
+	public ImportSummary importActions(@PathVariable("adminSmartspace") String adminSmartspace,
+			@PathVariable("adminEmail") String adminEmail, InputStream body) throws IOException {
+		// before the body is read, an unauthorized import reads nothing
+		this.adminCheck.check(adminSmartspace, adminEmail);
+		return NdjsonImport.read(this.jackson, body, ActionBoundary.class, ActionBoundary::convertToEntity,
+				this.importChunkSize,
+				(chunk, summary) -> this.actionService.importActionsChunk(adminSmartspace, adminEmail, chunk, summary));
+	}
 
+	private ActionBoundary[] toBoundary(List<ActionEntity> entities) {
+		return entities.stream().map(ActionBoundary::new).collect(Collectors.toList()).toArray(new ActionBoundary[0]);
 	}
 }
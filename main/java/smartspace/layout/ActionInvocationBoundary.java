@@ -0,0 +1,71 @@
+package smartspace.layout;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import smartspace.infra.ActionInvocation;
+
+public class ActionInvocationBoundary {
+	private Map<String, String> actionKey;
+	private String status;
+	private String error;
+	private ActionBoundary action;
+
+	public ActionInvocationBoundary() {
+	}
+
+	// convert ActionInvocation to ActionInvocationBoundary
+	public ActionInvocationBoundary(ActionInvocation invocation) {
+		// no key when the action was not created
+		if (invocation.getKey() != null) {
+			this.actionKey = new TreeMap<String, String>();
+			this.actionKey.put("id", String.valueOf(invocation.getKey().getId()));
+			this.actionKey.put("smartspace", invocation.getKey().getActionSmartspace());
+		}
+
+		this.status = invocation.getStatus().name();
+		this.error = invocation.getError();
+
+		if (invocation.getAction() != null) {
+			this.action = new ActionBoundary(invocation.getAction());
+		}
+	}
+
+	public Map<String, String> getActionKey() {
+		return actionKey;
+	}
+
+	public void setActionKey(Map<String, String> actionKey) {
+		this.actionKey = actionKey;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	public ActionBoundary getAction() {
+		return action;
+	}
+
+	public void setAction(ActionBoundary action) {
+		this.action = action;
+	}
+
+	@Override
+	public String toString() {
+		return "ActionInvocationBoundary [actionKey=" + actionKey + ", status=" + status + ", error=" + error
+				+ ", action=" + action + "]";
+	}
+}
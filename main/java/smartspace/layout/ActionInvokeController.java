@@ -3,14 +3,25 @@
  */
 package smartspace.layout;
 
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import smartspace.data.ActionEntity;
+import smartspace.data.ActionKey;
 import smartspace.infra.ActionInvokeService;
 
 /**
@@ -37,16 +48,72 @@ public class ActionInvokeController {
 
 	/**
 	 * New action.
+	 * <p>
+	 * With async=true the action is validated and queued, and 202 Accepted is
+	 * returned with its key; the status path tells when it was processed.
 	 *
 	 * @param boundaryActions the boundary actions
+	 * @param async           process the action after returning
 	 * @return the action boundary
 	 */
 	@RequestMapping(path = BASE_PATH, method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-	public ActionBoundary newAction(@RequestBody ActionBoundary boundaryActions) {
+	public ResponseEntity<ActionBoundary> newAction(@RequestBody ActionBoundary boundaryActions,
+			@RequestParam(name = "async", required = false, defaultValue = "false") boolean async) {
 
 		// convert ActionsBoundary to ActionsEntity.
 		ActionEntity actionEntity = boundaryActions.convertToEntity();
 
-		return new ActionBoundary(this.actionService.invokeAction(actionEntity));
+		if (!async) {
+			return ResponseEntity.ok(new ActionBoundary(this.actionService.invokeAction(actionEntity)));
+		}
+
+		ActionEntity queued = this.actionService.invokeActionAsync(actionEntity);
+		return ResponseEntity.accepted()
+				.location(URI.create(BASE_PATH + "/status/" + queued.getPlayerSmartspace() + "/"
+						+ queued.getPlayerEmail() + "/" + queued.getActionSmartspace() + "/" + queued.getActionId()))
+				.body(new ActionBoundary(queued));
+	}
+
+	/**
+	 * New actions, the result of each action in the same order. An invalid
+	 * action fails alone.
+	 *
+	 * @param boundaryActions the boundary actions
+	 * @return the action invocation boundaries
+	 */
+	@RequestMapping(path = BASE_PATH + "/batch", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ActionInvocationBoundary[] newActions(@RequestBody ActionBoundary[] boundaryActions) {
+		List<ActionEntity> actionEntities = Arrays.stream(boundaryActions)
+				.map(ActionBoundary::convertToEntity)
+				.collect(Collectors.toList());
+
+		return this.actionService.invokeActions(actionEntities).stream()
+				.map(ActionInvocationBoundary::new)
+				.toArray(ActionInvocationBoundary[]::new);
+	}
+
+	/**
+	 * Status of an action invoked with async=true, for its player or an admin.
+	 * Anyone else gets 404, as if the action was not known.
+	 *
+	 * @param userSmartspace   the user smartspace
+	 * @param userEmail        the user email
+	 * @param actionSmartspace the action smartspace
+	 * @param actionId         the action id
+	 * @param waitMillis       how long to wait for the action to finish
+	 * @return the action invocation boundary
+	 */
+	@RequestMapping(path = BASE_PATH + "/status/{userSmartspace}/{userEmail}/{actionSmartspace}/{actionId}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ActionInvocationBoundary getActionStatus(@PathVariable("userSmartspace") String userSmartspace,
+			@PathVariable("userEmail") String userEmail,
+			@PathVariable("actionSmartspace") String actionSmartspace,
+			@PathVariable("actionId") long actionId,
+			@RequestParam(name = "waitMillis", required = false, defaultValue = "0") long waitMillis) {
+
+		return this.actionService.readInvocation(userSmartspace, userEmail, new ActionKey(actionSmartspace, actionId),
+				waitMillis)
+				.map(ActionInvocationBoundary::new)
+				.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+						"No queued action with key: " + actionSmartspace + "/" + actionId));
 	}
 }
@@ -0,0 +1,106 @@
+package smartspace.layout;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import smartspace.data.ActionKey;
+import smartspace.data.ElementKey;
+import smartspace.data.UserKey;
+
+/**
+ * Opaque token that carries the key of the last entity of a page, so the next
+ * page can seek past it on the _id index instead of skipping page * size
+ * documents.
+ * <p>
+ * Clients send it back in the continuation request parameter. The token of
+ * the next page is returned in the X-Continuation-Token header, which is
+ * missing on the last page. An empty continuation starts from the first page.
+ */
+public final class ContinuationToken {
+	public static final String HEADER = "X-Continuation-Token";
+	public static final String PARAM = "continuation";
+
+	private static final String SEPARATOR = "\n";
+
+	private ContinuationToken() {
+	}
+
+	public static String encode(ElementKey key) {
+		return encode(key.getElementSmartspace(), String.valueOf(key.getId()));
+	}
+
+	public static String encode(UserKey key) {
+		return encode(key.getUserSmartspace(), key.getUserEmail());
+	}
+
+	public static String encode(ActionKey key) {
+		return encode(key.getActionSmartspace(), String.valueOf(key.getId()));
+	}
+
+	public static ElementKey decodeElementKey(String token) {
+		String[] parts = decode(token);
+		return parts == null ? null : new ElementKey(parts[0], parseId(parts[1]));
+	}
+
+	public static UserKey decodeUserKey(String token) {
+		String[] parts = decode(token);
+		return parts == null ? null : new UserKey(parts[0], parts[1]);
+	}
+
+	public static ActionKey decodeActionKey(String token) {
+		String[] parts = decode(token);
+		return parts == null ? null : new ActionKey(parts[0], parseId(parts[1]));
+	}
+
+	/**
+	 * Build the response of a keyset page, with the token of the next page when
+	 * the page is full.
+	 *
+	 * @param page the entities of the page, already converted
+	 * @param size the requested size
+	 * @param next the token of the last entity of the page, null if empty
+	 * @return the response
+	 */
+	public static <T> ResponseEntity<T[]> page(T[] page, int size, String next) {
+		HttpHeaders headers = new HttpHeaders();
+		if (next != null && page.length == size) {
+			headers.set(HEADER, next);
+		}
+		return new ResponseEntity<>(page, headers, HttpStatus.OK);
+	}
+
+	private static String encode(String smartspace, String id) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString((smartspace + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String[] decode(String token) {
+		if (token == null || token.isEmpty()) {
+			return null;
+		}
+
+		try {
+			String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+					.split(SEPARATOR, 2);
+			if (parts.length != 2) {
+				throw new IllegalArgumentException();
+			}
+			return parts;
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid continuation token: " + token);
+		}
+	}
+
+	private static long parseId(String id) {
+		try {
+			return Long.parseLong(id);
+		} catch (NumberFormatException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid continuation token");
+		}
+	}
+}
@@ -10,6 +10,7 @@ import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -18,6 +19,7 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
 import smartspace.data.ElementEntity;
+import smartspace.data.ElementKey;
 import smartspace.infra.ElementServiceForManagerOrPlayerImpl;
 
 /**
@@ -51,11 +53,12 @@ public class ElementControllerForManagerOrPlayer {
 	 * @param page the page
 	 * @param search the search
 	 * @param value the value
+	 * @param continuation the continuation token of the next page, switches to keyset paging
 	 * @return the all elements by value
 	 */
 	@RequestMapping(path = BASE_PATH
 			+ "/{userSmartspace}/{userEmail}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-	public ElementBoundary[] getAllElementsByValue(@PathVariable("userSmartspace") String userSmartspace,
+	public ResponseEntity<ElementBoundary[]> getAllElementsByValue(@PathVariable("userSmartspace") String userSmartspace,
 			@PathVariable("userEmail") String userEmail,
 			@RequestParam(name = "size", required = false, defaultValue = "10") int size,
 			@RequestParam(name = "page", required = false, defaultValue = "0") int page,
@@ -63,23 +66,47 @@ public class ElementControllerForManagerOrPlayer {
 			@RequestParam(name = "value", required = false) String value,
 			@RequestParam(name = "x", required = false) Double x,
 			@RequestParam(name = "y", required = false) Double y,
-			@RequestParam(name = "distance", required = false) Double distance) {
+			@RequestParam(name = "distance", required = false) Double distance,
+			@RequestParam(name = "continuation", required = false) String continuation) {
 
 		// search by value if search argument is one of these keys
 		String[] searchKeysByValue = { "name", "type" };
 
+		if (continuation != null) {
+			return getAllElementsUsingKeyset(userSmartspace, userEmail, size, search, value, x, y, distance,
+					ContinuationToken.decodeElementKey(continuation));
+		}
+
 		if (search == null) {
-			return toBoundary(this.elementService.getElementsUsingPagination(null, userSmartspace, userEmail, size, page));
+			return ResponseEntity.ok(toBoundary(this.elementService.getElementsUsingPagination(null, userSmartspace, userEmail, size, page)));
 		} else if (Arrays.asList(searchKeysByValue).contains(search) && value != null) {
-			return toBoundary(this.elementService.getElementsSearchByValueUsingPagination(null, userSmartspace, userEmail, search, value, size, page));
+			return ResponseEntity.ok(toBoundary(this.elementService.getElementsSearchByValueUsingPagination(null, userSmartspace, userEmail, search, value, size, page)));
 		} 
 		else if(search.equals("location") && x != null && y != null && distance != null) {
-			return toBoundary(this.elementService.getElementsByLocation(null, userSmartspace, userEmail, x, y, distance, size, page));
+			return ResponseEntity.ok(toBoundary(this.elementService.getElementsByLocation(null, userSmartspace, userEmail, x, y, distance, size, page)));
 		} else {
 			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Page not found with this search option: " + value);
 		}
 	}
 	
+	private ResponseEntity<ElementBoundary[]> getAllElementsUsingKeyset(String userSmartspace, String userEmail,
+			int size, String search, String value, Double x, Double y, Double distance, ElementKey after) {
+		List<ElementEntity> entities;
+
+		if (search == null) {
+			entities = this.elementService.getElementsUsingKeyset(null, userSmartspace, userEmail, after, size);
+		} else if ((search.equals("name") || search.equals("type")) && value != null) {
+			entities = this.elementService.getElementsSearchByValueUsingKeyset(null, userSmartspace, userEmail, search, value, after, size);
+		} else if (search.equals("location") && x != null && y != null && distance != null) {
+			entities = this.elementService.getElementsByLocationUsingKeyset(null, userSmartspace, userEmail, x, y, distance, after, size);
+		} else {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Page not found with this search option: " + value);
+		}
+
+		String next = entities.isEmpty() ? null : ContinuationToken.encode(entities.get(entities.size() - 1).getKey());
+		return ContinuationToken.page(toBoundary(entities), size, next);
+	}
+
 	private ElementBoundary[] toBoundary(List<ElementEntity> list) {
 		return list.stream().map(ElementBoundary::new).collect(Collectors.toList()).toArray(new ElementBoundary[0]);
 		
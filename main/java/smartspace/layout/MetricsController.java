@@ -0,0 +1,34 @@
+package smartspace.layout;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import smartspace.infra.MetricsService;
+
+@RestController
+public class MetricsController {
+	private MetricsService metricsService;
+
+	@Autowired
+	public MetricsController(MetricsService metricsService) {
+		this.metricsService = metricsService;
+	}
+
+	@RequestMapping(
+			path="/smartspace/admin/metrics/{adminSmartspace}/{adminEmail}",
+			method=RequestMethod.GET,
+			produces=MediaType.APPLICATION_JSON_VALUE)
+	
+	public Map<String, Object> getMetrics (
+			@PathVariable("adminSmartspace") String adminSmartspace,
+			@PathVariable("adminEmail") String adminEmail) {
+		
+		return this.metricsService.readMetrics(adminSmartspace, adminEmail);
+	}
+}
@@ -0,0 +1,49 @@
+package smartspace.layout;
+
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Writes an export as newline delimited JSON, one boundary per line, while
+ * the entities are read from the cursor. The response is not built in
+ * memory, so an export of any size holds one entity at a time.
+ */
+public final class NdjsonExport {
+	public static final String MEDIA_TYPE = "application/x-ndjson";
+	public static final String MODIFIED_SINCE = "modifiedSince";
+
+	private NdjsonExport() {
+	}
+
+	/**
+	 * @param jackson    the object mapper of the application
+	 * @param entities   the entities, closed when the response was written
+	 * @param toBoundary converts an entity to its boundary
+	 * @return the response
+	 */
+	public static <T> ResponseEntity<StreamingResponseBody> body(ObjectMapper jackson, Stream<T> entities,
+			Function<T, ?> toBoundary) {
+		ObjectWriter writer = jackson.writer();
+
+		StreamingResponseBody body = out -> {
+			try (Stream<T> rows = entities) {
+				Iterator<T> iterator = rows.iterator();
+				while (iterator.hasNext()) {
+					out.write(writer.writeValueAsBytes(toBoundary.apply(iterator.next())));
+					out.write('\n');
+				}
+			}
+			out.flush();
+		};
+
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(MEDIA_TYPE)).body(body);
+	}
+}
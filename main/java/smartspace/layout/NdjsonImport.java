@@ -0,0 +1,80 @@
+package smartspace.layout;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import smartspace.infra.ImportSummary;
+
+/**
+ * Reads an import of newline delimited JSON, one boundary per line, with the
+ * streaming parser. Records are converted as they are read and handed to the
+ * service in chunks, so the import holds one chunk at a time.
+ * <p>
+ * A record that doesn't fit the boundary is counted as failed and skipped.
+ * Malformed JSON stops the import, the chunks before it stay imported.
+ */
+public final class NdjsonImport {
+	private NdjsonImport() {
+	}
+
+	/**
+	 * The caller checks the admin before, nothing here reads the body until then.
+	 *
+	 * @param jackson      the object mapper of the application
+	 * @param in           the request body
+	 * @param boundaryType the boundary of a record
+	 * @param toEntity     converts a boundary to its entity
+	 * @param chunkSize    the entities handed to the service at once
+	 * @param importChunk  imports a chunk and counts it in the summary
+	 * @return the summary
+	 */
+	public static <B, T> ImportSummary read(ObjectMapper jackson, InputStream in, Class<B> boundaryType,
+			Function<B, T> toEntity, int chunkSize, BiConsumer<List<T>, ImportSummary> importChunk)
+			throws IOException {
+		ImportSummary summary = new ImportSummary();
+		int size = Math.max(chunkSize, 1);
+
+		List<T> chunk = new ArrayList<>(size);
+		try (MappingIterator<B> records = jackson.readerFor(boundaryType).readValues(in)) {
+			while (true) {
+				int line = 0;
+				try {
+					if (!records.hasNextValue()) {
+						break;
+					}
+					line = records.getCurrentLocation().getLineNr();
+					summary.recordRead();
+					chunk.add(toEntity.apply(records.nextValue()));
+				} catch (JsonMappingException e) {
+					// the parser skips to the next record
+					summary.recordFailed("line " + line, e.getOriginalMessage());
+				} catch (JsonProcessingException e) {
+					summary.recordFailed("line " + e.getLocation().getLineNr(),
+							"malformed JSON, the rest was not imported: " + e.getOriginalMessage());
+					break;
+				} catch (RuntimeException e) {
+					summary.recordFailed("line " + line, String.valueOf(e.getMessage()));
+				}
+
+				if (chunk.size() == size) {
+					importChunk.accept(chunk, summary);
+					chunk = new ArrayList<>(size);
+				}
+			}
+		}
+
+		if (!chunk.isEmpty()) {
+			importChunk.accept(chunk, summary);
+		}
+		return summary;
+	}
+}
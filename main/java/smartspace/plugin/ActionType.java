@@ -0,0 +1,19 @@
+package smartspace.plugin;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The action types a {@link Plugin} processes, compared ignoring case. A
+ * plugin without it processes the type named by its class:
+ * &lt;Type&gt;ActionPlugin.
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ActionType {
+	String[] value();
+}
@@ -0,0 +1,43 @@
+package smartspace.plugin;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Binds the attributes of an action or an element to a typed input class.
+ * <p>
+ * The map is converted directly to the input class, without writing it to a
+ * JSON string and parsing it back. The type of each input class is resolved
+ * once and shared by all plugins.
+ */
+@Component
+public class AttributeBinder {
+	private ObjectMapper jackson;
+	private Map<Class<?>, JavaType> types;
+
+	public AttributeBinder() {
+		this.jackson = new ObjectMapper();
+		this.types = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Bind attributes to an input class.
+	 *
+	 * @param attributes the attributes
+	 * @param inputType  the input class
+	 * @return the input
+	 */
+	public <T> T bind(Map<String, Object> attributes, Class<T> inputType) {
+		JavaType type = this.types.computeIfAbsent(inputType, this.jackson::constructType);
+		try {
+			return this.jackson.convertValue(attributes, type);
+		} catch (IllegalArgumentException e) {
+			throw new RuntimeException("invalid attributes for " + inputType.getSimpleName() + ": " + e.getMessage(), e);
+		}
+	}
+}
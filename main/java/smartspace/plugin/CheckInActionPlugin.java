@@ -3,11 +3,8 @@ package smartspace.plugin;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import smartspace.dao.EnhancedElementDao;
 import smartspace.data.ActionEntity;
-import smartspace.data.ElementEntity;
 import smartspace.data.ElementKey;
 
 
@@ -28,31 +25,27 @@ import smartspace.data.ElementKey;
 
 
 @Component
+@ActionType("checkIn")
 public class CheckInActionPlugin implements Plugin {
 
 	private EnhancedElementDao<ElementKey> elementDao;
-	private ObjectMapper jackson;
 
 	@Autowired
 	public CheckInActionPlugin(EnhancedElementDao<ElementKey> elementDao) {
 		super();
 		this.elementDao = elementDao;
-		this.jackson = new ObjectMapper();
 	}
 
 	@Override
 	public ActionEntity process(ActionEntity action) {
 		try {
 			long elementId = Long.parseLong(action.getElementId());
-			ElementEntity onlineIndicator = elementDao.readById(new ElementKey(action.getElementSmartspace(), elementId)).get();
-			
-			String attributes = this.jackson.writeValueAsString(onlineIndicator.getMoreAttributes());
-			OnlineIndicatorInput input = this.jackson.readValue(attributes, OnlineIndicatorInput.class);
 			
-			input.addPlayer(action.getPlayerSmartspace(), action.getPlayerEmail());
-			onlineIndicator.getMoreAttributes().put("onlineMembers", input.getOnlineMembers());
+			// one atomic update, concurrent check ins and outs are not lost
+			elementDao.addToAttributeSet(new ElementKey(action.getElementSmartspace(), elementId),
+					OnlineIndicatorInput.ONLINE_MEMBERS,
+					OnlineIndicatorInput.memberKey(action.getPlayerSmartspace(), action.getPlayerEmail()));
 			
-			elementDao.update(onlineIndicator);
 			return action;
 		} catch (Exception e) {
 			throw new RuntimeException(e);
@@ -4,6 +4,7 @@ import org.springframework.stereotype.Component;
 import smartspace.data.ActionEntity;
 
 @Component
+@ActionType("echo")
 public class EchoActionPlugin implements Plugin {
 	
 	@Override
@@ -1,19 +1,13 @@
 package smartspace.plugin;
 
-import java.util.Optional;
-
 import org.springframework.beans.factory.annotation.Autowired;
 
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import smartspace.dao.EnhancedElementDao;
 import smartspace.dao.EnhancedUserDao;
 import smartspace.data.ActionEntity;
-import smartspace.data.ElementEntity;
 import smartspace.data.ElementKey;
-import smartspace.data.UserEntity;
 import smartspace.data.UserKey;
 
 //{
@@ -32,35 +26,29 @@ import smartspace.data.UserKey;
 //}
 
 @Component
-public class MarkItemActionPlugin implements Plugin {
+@ActionType("markItem")
+public class MarkItemActionPlugin extends TypedPlugin<MarkItemInput> {
 
 	private EnhancedElementDao<ElementKey> elementDao;
 	private EnhancedUserDao<UserKey> userDao;
-	private ObjectMapper jackson;
 
 	public static int POINTS_PER_MARK = 5;
 
 	@Autowired
-	public MarkItemActionPlugin(EnhancedElementDao<ElementKey> elementDao, EnhancedUserDao<UserKey> userDao) {
-		super();
+	public MarkItemActionPlugin(EnhancedElementDao<ElementKey> elementDao, EnhancedUserDao<UserKey> userDao,
+			AttributeBinder binder) {
+		super(MarkItemInput.class, binder);
 		this.elementDao = elementDao;
 		this.userDao = userDao;
-		this.jackson = new ObjectMapper();
 	}
 
 	@Override
-	public ActionEntity process(ActionEntity action) {
+	protected ActionEntity process(ActionEntity action, MarkItemInput markInput) {
 		try {
-			String attributes = this.jackson.writeValueAsString(action.getMoreAttributes());
-			MarkItemInput markInput = this.jackson.readValue(attributes, MarkItemInput.class);
-
 			long elementId = Long.parseLong(action.getElementId());
-			ElementEntity item = elementDao.readById(new ElementKey(action.getElementSmartspace(), elementId)).get();
 
-			item.getMoreAttributes().put("marked", markInput.getMarkStatus());
-			elementDao.update(item);
-
-			Optional<UserEntity> userData = userDao.readById(new UserKey(action.getPlayerSmartspace(), action.getPlayerEmail()));
+			// only the marked attribute of the item is written
+			elementDao.setAttribute(new ElementKey(action.getElementSmartspace(), elementId), "marked", markInput.getMarkStatus());
 
 			// + 5 points if bought item -5 points if removed marked
 			int pointsGiven = POINTS_PER_MARK;
@@ -68,12 +56,8 @@ public class MarkItemActionPlugin implements Plugin {
 				pointsGiven = POINTS_PER_MARK * -1;
 			}
 
-			// give points to user, can go below 0;
-			if (userData.isPresent()) {
-				UserEntity user = userData.get();
-				user.setPoints(user.getPoints() + pointsGiven);
-				userDao.addPoints(user);
-			}
+			// give points to user, can go below 0; one atomic $inc, nothing if the user doesn't exist
+			userDao.incrementPoints(new UserKey(action.getPlayerSmartspace(), action.getPlayerEmail()), pointsGiven);
 
 			return action;
 		} catch (Exception e) {
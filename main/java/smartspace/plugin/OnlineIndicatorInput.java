@@ -1,9 +1,8 @@
 package smartspace.plugin;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-
 public class OnlineIndicatorInput {
+	public static final String ONLINE_MEMBERS = "onlineMembers";
+
 	private String[] onlineMembers;
 	
 	public OnlineIndicatorInput() {
@@ -17,25 +16,7 @@ public class OnlineIndicatorInput {
 		this.onlineMembers = onlineMembers;
 	}
 	
-	public void addPlayer(String smartspace, String email) {
-		ArrayList<String> players = new ArrayList<>(Arrays.asList(this.onlineMembers));
-		String key = smartspace + "#" + email;
-		
-		if (!players.contains(key)) {
-			players.add(key);
-		}
-		
-		this.onlineMembers = players.toArray(new String[0]);
-	}
-	
-	public void removePlayer(String smartspace, String email) {
-		ArrayList<String> players = new ArrayList<>(Arrays.asList(this.onlineMembers));
-		String key = smartspace + "#" + email;
-		
-		while (players.contains(key)) {
-			players.remove(key);
-		}
-		
-		this.onlineMembers = players.toArray(new String[0]);
+	public static String memberKey(String smartspace, String email) {
+		return smartspace + "#" + email;
 	}
 }
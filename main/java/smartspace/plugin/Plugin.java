@@ -4,4 +4,14 @@ import smartspace.data.ActionEntity;
 
 public interface Plugin {
 	public ActionEntity process(ActionEntity message);
+
+	/**
+	 * Check the input of an action without changing anything, called before
+	 * a batch of actions is stored.
+	 *
+	 * @param action the action
+	 * @throws RuntimeException if the action can't be processed
+	 */
+	public default void validate(ActionEntity action) {
+	}
 }
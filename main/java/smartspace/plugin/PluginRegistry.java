@@ -0,0 +1,82 @@
+package smartspace.plugin;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * The {@link Plugin} beans by action type, built once at startup. Lookups
+ * ignore case and use no reflection.
+ */
+@Component
+public class PluginRegistry {
+	private static final String CLASS_NAME_SUFFIX = "ActionPlugin";
+
+	private Log logger = LogFactory.getLog(PluginRegistry.class);
+
+	private Map<String, Plugin> plugins;
+
+	@Autowired
+	public PluginRegistry(List<Plugin> plugins) {
+		Map<String, Plugin> byType = new HashMap<>();
+
+		for (Plugin plugin : plugins) {
+			for (String type : typesOf(plugin)) {
+				Plugin existing = byType.put(normalize(type), plugin);
+				if (existing != null) {
+					throw new IllegalStateException("action type " + type + " is processed by both "
+							+ AopUtils.getTargetClass(existing).getName() + " and "
+							+ AopUtils.getTargetClass(plugin).getName());
+				}
+			}
+		}
+
+		this.plugins = Collections.unmodifiableMap(byType);
+		logger.debug("action plugins: " + this.plugins.keySet());
+	}
+
+	/**
+	 * Get the plugin of an action type.
+	 *
+	 * @param actionType the action type, any case
+	 * @return the plugin, empty if the type is not supported
+	 */
+	public Optional<Plugin> get(String actionType) {
+		if (actionType == null) {
+			return Optional.empty();
+		}
+		return Optional.ofNullable(this.plugins.get(normalize(actionType)));
+	}
+
+	private String[] typesOf(Plugin plugin) {
+		Class<?> pluginClass = AopUtils.getTargetClass(plugin);
+
+		ActionType actionType = AnnotationUtils.findAnnotation(pluginClass, ActionType.class);
+		if (actionType != null) {
+			return actionType.value();
+		}
+
+		// class name convention: "echo" --> EchoActionPlugin
+		String name = pluginClass.getSimpleName();
+		if (name.endsWith(CLASS_NAME_SUFFIX) && name.length() > CLASS_NAME_SUFFIX.length()) {
+			return new String[] { name.substring(0, name.length() - CLASS_NAME_SUFFIX.length()) };
+		}
+
+		throw new IllegalStateException(pluginClass.getName() + " has no @ActionType and its name doesn't end with "
+				+ CLASS_NAME_SUFFIX);
+	}
+
+	private String normalize(String actionType) {
+		return actionType.trim().toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,35 @@
+package smartspace.plugin;
+
+import smartspace.data.ActionEntity;
+
+/**
+ * A plugin that reads the attributes of the action as an input class. The
+ * attributes are bound before the plugin processes the action.
+ *
+ * @param <T> the input class
+ */
+public abstract class TypedPlugin<T> implements Plugin {
+	private Class<T> inputType;
+	private AttributeBinder binder;
+
+	protected TypedPlugin(Class<T> inputType, AttributeBinder binder) {
+		this.inputType = inputType;
+		this.binder = binder;
+	}
+
+	public Class<T> getInputType() {
+		return inputType;
+	}
+
+	@Override
+	public void validate(ActionEntity action) {
+		this.binder.bind(action.getMoreAttributes(), this.inputType);
+	}
+
+	@Override
+	public ActionEntity process(ActionEntity action) {
+		return process(action, this.binder.bind(action.getMoreAttributes(), this.inputType));
+	}
+
+	protected abstract ActionEntity process(ActionEntity action, T input);
+}
@@ -0,0 +1,129 @@
+package smartspace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import smartspace.infra.VirtualThreads;
+
+/**
+ * Compares the request throughput of the platform-thread default and the
+ * virtual-threads profile.
+ * <p>
+ * Start the application once with the default profiles and once with
+ * virtual-threads added, run this against each and compare the two tables.
+ * Every client sends GET requests one after the other for the given seconds,
+ * at 1000, 5000 and 10000 concurrent clients by default:
+ *
+ * <pre>
+ * java smartspace.VirtualThreadsBenchmark http://localhost:8080 \
+ *     /smartspace/elements/2019B.nadav.peleg/player@gmail.com?size=10 30 1000,5000,10000
+ * </pre>
+ *
+ * The clients run on virtual threads when this JVM has them, so the client
+ * side is not the bottleneck at 10000 clients.
+ */
+public class VirtualThreadsBenchmark {
+	public static void main(String[] args) throws Exception {
+		String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+		String path = args.length > 1 ? args[1] : "/smartspace/elements/2019B.nadav.peleg/player@gmail.com?size=10";
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+		int[] levels = args.length > 3 ? Arrays.stream(args[3].split(",")).mapToInt(Integer::parseInt).toArray()
+				: new int[] { 1000, 5000, 10000 };
+
+		URL url = new URL(baseUrl + path);
+		ThreadFactory threads = VirtualThreads.factory("benchmark-client", VirtualThreads.isSupported());
+
+		System.out.println("GET " + url + ", " + seconds + "s per level, clients on "
+				+ (VirtualThreads.isSupported() ? "virtual" : "platform") + " threads");
+		System.out.println(String.format("%8s %10s %10s %10s %10s %10s", "clients", "requests", "errors", "req/s",
+				"p50 ms", "p99 ms"));
+
+		for (int clients : levels) {
+			Client[] running = new Client[clients];
+			CountDownLatch finished = new CountDownLatch(clients);
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+			for (int i = 0; i < clients; i++) {
+				running[i] = new Client(url, deadline);
+				Client client = running[i];
+				threads.newThread(() -> {
+					client.run();
+					finished.countDown();
+				}).start();
+			}
+			finished.await();
+
+			long requests = 0;
+			long errors = 0;
+			List<Long> latencies = new ArrayList<>();
+			for (Client client : running) {
+				requests += client.requests;
+				errors += client.errors;
+				latencies.addAll(client.latencies);
+			}
+			latencies.sort(null);
+
+			System.out.println(String.format("%8d %10d %10d %10.1f %10.1f %10.1f", clients, requests, errors,
+					(double) requests / seconds, percentile(latencies, 0.50), percentile(latencies, 0.99)));
+		}
+	}
+
+	private static double percentile(List<Long> sortedNanos, double percentile) {
+		if (sortedNanos.isEmpty()) {
+			return 0;
+		}
+		int index = (int) Math.min(sortedNanos.size() - 1, Math.round(percentile * (sortedNanos.size() - 1)));
+		return sortedNanos.get(index) / 1_000_000.0;
+	}
+
+	private static class Client {
+		private URL url;
+		private long deadline;
+
+		private long requests;
+		private long errors;
+		private List<Long> latencies;
+
+		public Client(URL url, long deadline) {
+			this.url = url;
+			this.deadline = deadline;
+			this.latencies = new ArrayList<>();
+		}
+
+		public void run() {
+			byte[] buffer = new byte[8192];
+			while (System.nanoTime() < this.deadline) {
+				long start = System.nanoTime();
+				try {
+					HttpURLConnection connection = (HttpURLConnection) this.url.openConnection();
+					connection.setConnectTimeout(10_000);
+					connection.setReadTimeout(30_000);
+					int status = connection.getResponseCode();
+
+					// read the whole body so the connection is kept alive
+					try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+						while (body != null && body.read(buffer) != -1) {
+						}
+					}
+
+					if (status < 400) {
+						this.requests++;
+						this.latencies.add(System.nanoTime() - start);
+					} else {
+						this.errors++;
+					}
+				} catch (IOException e) {
+					this.errors++;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package smartspace.aop;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ServiceMetricsUnitTests {
+	private static final String METHOD = "smartspace.infra.ElementServiceImpl.getUsingPagination()";
+
+	private ServiceMetrics metrics;
+
+	@Before
+	public void setup() {
+		this.metrics = new ServiceMetrics();
+	}
+
+	@Test
+	public void testCallsAreCountedPerRole() throws Exception {
+		// GIVEN the metrics are empty
+
+		// WHEN 3 calls of a player succeed, 1 fails and a manager calls once
+		for (int i = 0; i < 3; i++) {
+			this.metrics.record("get", "PLAYER", METHOD, TimeUnit.MILLISECONDS.toNanos(3), true);
+		}
+		this.metrics.record("get", "PLAYER", METHOD, TimeUnit.MILLISECONDS.toNanos(3), false);
+		this.metrics.record("get", "MANAGER", METHOD, TimeUnit.MILLISECONDS.toNanos(3), true);
+
+		// THEN there is one series per role with its own counters
+		List<Map<String, Object>> stats = this.metrics.getStats();
+		assertThat(stats).hasSize(2);
+		assertThat(stats.get(0)).containsEntry("role", "MANAGER").containsEntry("successes", 1L)
+				.containsEntry("failures", 0L);
+		assertThat(stats.get(1)).containsEntry("role", "PLAYER").containsEntry("successes", 3L)
+				.containsEntry("failures", 1L);
+	}
+
+	@Test
+	public void testPercentilesAreReadFromTheBuckets() throws Exception {
+		// GIVEN the metrics are empty
+
+		// WHEN 98 calls take 3ms and 2 calls take 700ms
+		for (int i = 0; i < 98; i++) {
+			this.metrics.record("export", "ADMIN", METHOD, TimeUnit.MILLISECONDS.toNanos(3), true);
+		}
+		for (int i = 0; i < 2; i++) {
+			this.metrics.record("export", "ADMIN", METHOD, TimeUnit.MILLISECONDS.toNanos(700), true);
+		}
+
+		// THEN the median is in the 5ms bucket and the 99th percentile in the 1000ms bucket
+		Map<String, Object> stats = this.metrics.getStats().get(0);
+		assertThat(stats).containsEntry("p50Millis", 5L).containsEntry("p95Millis", 5L)
+				.containsEntry("p99Millis", 1000L).containsEntry("maxMillis", 700.0);
+	}
+}
@@ -1,6 +1,7 @@
 package smartspace.dao;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 
 import java.util.Date;
 import java.util.HashMap;
@@ -318,4 +319,50 @@ public class ElementDaoIntegrationTests {
 
 	}
 
+	@Test
+	public void testUpdateSetsOnlyTheGivenFields() throws Exception {
+		// GIVEN the dao contains an element with 2 attributes
+		Map<String, Object> moreAttributes = new HashMap<String, Object>();
+		moreAttributes.put("item1", "test1");
+		moreAttributes.put("item2", "test2");
+		ElementEntity elementInDB = this.dao.create(this.factory.createNewElement("ListElement", "testType",
+				new Location(1, 1), new Date(), "test@gmail.com", "testSmartspace", false, moreAttributes));
+
+		// WHEN I update one attribute and expire the element
+		Map<String, Object> changed = new HashMap<String, Object>();
+		changed.put("item2", "changed");
+		ElementEntity update = new ElementEntity();
+		update.setKey(elementInDB.getKey());
+		update.setMoreAttributes(changed);
+		update.setExpired(true);
+		this.dao.update(update);
+
+		// THEN the element keeps its other fields and attributes
+		ElementEntity fromDb = this.dao.readById(elementInDB.getKey())
+				.orElseThrow(() -> new RuntimeException("could not find element by key"));
+		assertThat(fromDb.getName()).isEqualTo("ListElement");
+		assertThat(fromDb.getExpired()).isTrue();
+		assertThat(fromDb.getMoreAttributes()).containsEntry("item1", "test1").containsEntry("item2", "changed");
+	}
+
+	@Test
+	public void testUpdateAttributesOfElementWithoutAttributes() throws Exception {
+		// GIVEN the dao contains an element without attributes
+		ElementEntity elementInDB = this.dao.create(this.factory.createNewElement("ListElement", "testType",
+				new Location(1, 1), new Date(), "test@gmail.com", "testSmartspace", false, null));
+
+		// WHEN I update one attribute
+		Map<String, Object> changed = new HashMap<String, Object>();
+		changed.put("item1", "test1");
+		ElementEntity update = new ElementEntity();
+		update.setKey(elementInDB.getKey());
+		update.setMoreAttributes(changed);
+		this.dao.update(update);
+
+		// THEN the element has only that attribute
+		ElementEntity fromDb = this.dao.readById(elementInDB.getKey())
+				.orElseThrow(() -> new RuntimeException("could not find element by key"));
+		assertThat(fromDb.getMoreAttributes()).containsOnly(entry("item1", "test1"));
+	}
+
 }
@@ -1,10 +1,16 @@
 package smartspace.dao;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.IntStream;
 
 import org.junit.After;
@@ -15,6 +21,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import smartspace.dao.rdb.RdbElementDao;
 import smartspace.data.ElementEntity;
 import smartspace.data.ElementKey;
 import smartspace.data.Location;
@@ -104,6 +111,110 @@ public class MoreElementDaoIntegrationTests {
 		assertThat(result);
 	}
 
+	@Test
+	public void testReadListsByCreatorOrMemberReturnsSharedOwnListOnce() throws Exception {
+		// GIVEN the database contains 2 lists created by the user, 2 lists shared
+		// with the user, 1 list both created by and shared with the user
+		// and a list and an item the user can't see, all created at the same time
+		String smartspace = "testSmartspace";
+		String email = "member@test.com";
+		Date created = new Date();
+		List<ElementKey> expected = new ArrayList<>();
+		expected.add(createList(created, email, Collections.emptyList()).getKey());
+		expected.add(createList(created, email, Collections.emptyList()).getKey());
+		expected.add(createList(created, "other@test.com", Collections.singletonList(member(smartspace, email))).getKey());
+		expected.add(createList(created, "other@test.com", Collections.singletonList(member(smartspace, email))).getKey());
+		expected.add(createList(created, email, Collections.singletonList(member(smartspace, email))).getKey());
+		createList(created, "other@test.com", Collections.singletonList(member(smartspace, "other@test.com")));
+		this.elementDao.create(this.factory.createNewElement("item", RdbElementDao.SHOPPING_ITEM_TYPE,
+				new Location(1, 2), created, email, smartspace, false, new HashMap<String, Object>()));
+		expected.sort(Comparator.comparing(ElementKey::getId));
+
+		// WHEN I read the user's lists 2 at a time
+		List<ElementKey> actual = new ArrayList<>();
+		for (int page = 0; page < 4; page++) {
+			this.elementDao.readAllListsByCreatorOrMember(smartspace, email, 2, page).stream()
+					.map(ElementEntity::getKey)
+					.forEach(actual::add);
+		}
+
+		// THEN I receive each of the 5 lists once, in key order
+		assertThat(actual).containsExactlyElementsOf(expected);
+	}
+
+	@Test
+	public void testImportElementsReplacesStoredElement() throws Exception {
+		// GIVEN the dao contains an element with 2 attributes
+		Map<String, Object> moreAttributes = new HashMap<String, Object>();
+		moreAttributes.put("item1", "test1");
+		moreAttributes.put("item2", "test2");
+		ElementEntity elementInDB = this.elementDao.create(this.factory.createNewElement("ListElement", "testType",
+				new Location(1, 1), new Date(), "test@gmail.com", "testSmartspace", false, moreAttributes));
+
+		// WHEN I import the same key with 1 attribute
+		Map<String, Object> imported = new HashMap<String, Object>();
+		imported.put("item1", "imported");
+		ElementEntity importedElement = this.factory.createNewElement("ImportedElement", "testType",
+				new Location(1, 1), new Date(), "test@gmail.com", "testSmartspace", false, imported);
+		importedElement.setKey(elementInDB.getKey());
+		this.elementDao.importElements(Collections.singletonList(importedElement));
+
+		// THEN the stored element is the imported one, without the old attribute
+		ElementEntity fromDb = this.elementDao.readById(elementInDB.getKey())
+				.orElseThrow(() -> new RuntimeException("could not find element by key"));
+		assertThat(fromDb.getName()).isEqualTo("ImportedElement");
+		assertThat(fromDb.getMoreAttributes()).containsOnly(entry("item1", "imported"));
+	}
+
+	@Test
+	public void testAttributeSetOfElementWithoutAttributes() throws Exception {
+		// GIVEN the database contains an element without attributes
+		ElementEntity element = this.elementDao.create(this.factory.createNewElement("list",
+				RdbElementDao.SHOPPING_LIST_TYPE, new Location(1, 2), new Date(), "test@gamil.com", "testSmartspace",
+				false, null));
+
+		// WHEN I add the same value twice and another value once
+		this.elementDao.addToAttributeSet(element.getKey(), "onlineMembers", "a");
+		this.elementDao.addToAttributeSet(element.getKey(), "onlineMembers", "a");
+		this.elementDao.addToAttributeSet(element.getKey(), "onlineMembers", "b");
+		this.elementDao.removeFromAttributeSet(element.getKey(), "onlineMembers", "b");
+
+		// THEN the attribute holds the first value once
+		ElementEntity fromDb = this.elementDao.readById(element.getKey())
+				.orElseThrow(() -> new RuntimeException("could not find element by key"));
+		assertThat(fromDb.getMoreAttributes()).containsOnly(entry("onlineMembers", Collections.singletonList("a")));
+	}
+
+	@Test
+	public void testRemoveFromAttributeSetOfElementWithoutAttributes() throws Exception {
+		// GIVEN the database contains an element without attributes
+		ElementEntity element = this.elementDao.create(this.factory.createNewElement("list",
+				RdbElementDao.SHOPPING_LIST_TYPE, new Location(1, 2), new Date(), "test@gamil.com", "testSmartspace",
+				false, null));
+
+		// WHEN I remove a value
+		this.elementDao.removeFromAttributeSet(element.getKey(), "onlineMembers", "a");
+
+		// THEN the element still has no attributes
+		ElementEntity fromDb = this.elementDao.readById(element.getKey())
+				.orElseThrow(() -> new RuntimeException("could not find element by key"));
+		assertThat(fromDb.getMoreAttributes()).isNullOrEmpty();
+	}
+
+	private ElementEntity createList(Date created, String creatorEmail, List<Map<String, Object>> members) {
+		Map<String, Object> moreAttributes = new HashMap<>();
+		moreAttributes.put("members", members);
+		return this.elementDao.create(this.factory.createNewElement("list", RdbElementDao.SHOPPING_LIST_TYPE,
+				new Location(1, 2), created, creatorEmail, "testSmartspace", false, moreAttributes));
+	}
+
+	private Map<String, Object> member(String smartspace, String email) {
+		Map<String, Object> member = new LinkedHashMap<>();
+		member.put("userSmartspace", smartspace);
+		member.put("userEmail", email);
+		return member;
+	}
+
 	public void createSteamElementsToDB(int start, int end) {
 		IntStream.range(start, end)
 				.mapToObj(i -> this.factory.createNewElement("element" + i, "testType", new Location(1, 2), new Date(),
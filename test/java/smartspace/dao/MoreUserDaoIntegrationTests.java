@@ -2,8 +2,14 @@ package smartspace.dao;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -27,11 +33,11 @@ import smartspace.data.util.EntityFactory;
 @TestPropertySource(properties= {"spring.profiles.active=default, test"})
 public class MoreUserDaoIntegrationTests {
 	
-	private UserDao<UserKey> dao;
+	private EnhancedUserDao<UserKey> dao;
 	private EntityFactory factory;
 
 	@Autowired
-	public void setDao(UserDao<UserKey> dao) {
+	public void setDao(EnhancedUserDao<UserKey> dao) {
 		this.dao = dao;
 	}
 
@@ -86,4 +92,59 @@ public class MoreUserDaoIntegrationTests {
 		assertThat(rvUser).isEmpty();
 	}
 
+	@Test
+	public void testConcurrentIncrementPointsAreNotLost() throws Exception {
+		// GIVEN the database contains a user with 10 points
+		UserEntity user = this.dao.create(this.factory.createNewUser("test@gmail.com", "testSmartspace", "name", "avatar", UserRole.PLAYER, 10));
+		
+		// WHEN 8 threads increment its points by 1, 50 times each
+		int threads = 8;
+		int increments = 50;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Optional<Long>>> results = new ArrayList<>();
+		try {
+			for (int i = 0; i < threads * increments; i++) {
+				results.add(executor.submit(() -> this.dao.incrementPoints(user.getKey(), 1)));
+			}
+			Set<Long> totals = new HashSet<>();
+			for (Future<Optional<Long>> result : results) {
+				totals.add(result.get().get());
+			}
+			
+			// THEN every increment saw a different total and none was lost
+			assertThat(totals).hasSize(threads * increments);
+			assertThat(totals).contains(11L, 10L + threads * increments);
+			assertThat(this.dao.readById(user.getKey()).get().getPoints()).isEqualTo(10L + threads * increments);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void testIncrementPointsCanGoBelowZero() throws Exception {
+		// GIVEN the database contains a user with 5 points
+		UserEntity user = this.dao.create(this.factory.createNewUser("test@gmail.com", "testSmartspace", "name", "avatar", UserRole.PLAYER, 5));
+		
+		// WHEN I take 8 points
+		Optional<Long> rv = this.dao.incrementPoints(user.getKey(), -8);
+		
+		// THEN the user has -3 points and the other fields are unchanged
+		assertThat(rv).contains(-3L);
+		assertThat(this.dao.readById(user.getKey()).get())
+			.extracting(UserEntity::getPoints, UserEntity::getUsername, UserEntity::getRole)
+			.containsExactly(-3L, "name", UserRole.PLAYER);
+	}
+	
+	@Test
+	public void testIncrementPointsOfMissingUser() throws Exception {
+		// GIVEN the database is clean
+		
+		// WHEN I increment the points of a user that doesn't exist
+		Optional<Long> rv = this.dao.incrementPoints(new UserKey("testSmartspace", "test@gmail.com"), 5);
+		
+		// THEN nothing is returned and no user is created
+		assertThat(rv).isEmpty();
+		assertThat(this.dao.readAll()).isEmpty();
+	}
+
 }
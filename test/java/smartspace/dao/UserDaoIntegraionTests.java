@@ -2,7 +2,12 @@ package smartspace.dao;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.After;
 import org.junit.Before;
@@ -108,4 +113,30 @@ public class UserDaoIntegraionTests {
 
 	}
 
+	@Test
+	public void testConcurrentCreateOfTheSameUserCreatesOneUser() throws Exception {
+		// GIVEN 8 threads sharing the dao
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		Callable<Boolean> create = () -> {
+			try {
+				this.dao.create(this.factory.createNewUser("same@gmail.com", null, "test", "avatar", UserRole.PLAYER, 0));
+				return true;
+			} catch (RuntimeException e) {
+				return false;
+			}
+		};
+
+		// WHEN the threads register the same email together
+		List<Future<Boolean>> results = pool.invokeAll(Collections.nCopies(8, create));
+		pool.shutdown();
+
+		int created = 0;
+		for (Future<Boolean> result : results) {
+			created += result.get() ? 1 : 0;
+		}
+
+		// THEN exactly one registration succeeds
+		assertThat(created).isEqualTo(1);
+		assertThat(this.dao.readAll()).hasSize(1);
+	}
 }
@@ -0,0 +1,150 @@
+package smartspace.dao.rdb;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import smartspace.data.ActionEntity;
+import smartspace.data.ActionKey;
+import smartspace.data.util.EntityFactory;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@TestPropertySource(properties = { "spring.profiles.active=default, test" })
+public class ActionAppendWriterIntegrationTests {
+	private MongoOperations mongoOperations;
+	private EntityFactory factory;
+
+	private ActionAppendWriter writer;
+	private ExecutorService pool = Executors.newCachedThreadPool();
+
+	@Autowired
+	public void setMongoOperations(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	@Autowired
+	public void setFactory(EntityFactory factory) {
+		this.factory = factory;
+	}
+
+	@After
+	public void teardown() throws Exception {
+		this.pool.shutdownNow();
+		if (this.writer != null) {
+			this.writer.stop();
+		}
+		this.mongoOperations.remove(new Query(), ActionEntity.class);
+	}
+
+	@Test
+	public void testFullBatchIsWrittenWithoutWaitingForFlush() throws Exception {
+		// GIVEN a writer of 20 actions per batch that flushes after a minute
+		startWriter(20, 60000);
+
+		// WHEN 20 actions are appended together
+		List<Future<ActionEntity>> appended = appendAll(1, 20);
+
+		// THEN every append returns in time and the actions are written
+		for (Future<ActionEntity> future : appended) {
+			assertThat(future.get(10, TimeUnit.SECONDS)).isNotNull();
+		}
+		assertThat(this.mongoOperations.count(new Query(), ActionEntity.class)).isEqualTo(20);
+	}
+
+	@Test
+	public void testDuplicateKeyFailsOnlyItsAction() throws Exception {
+		// GIVEN an action with key 1 exists
+		// AND a writer of 3 actions per batch
+		this.mongoOperations.insert(newAction(1));
+		startWriter(3, 60000);
+
+		// WHEN the actions with keys 1, 2 and 3 are appended together
+		List<Future<ActionEntity>> appended = appendAll(1, 3);
+
+		// THEN the action with key 1 fails with a duplicate key
+		// AND the other actions are written
+		assertThatThrownBy(() -> appended.get(0).get(10, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(DuplicateKeyException.class);
+		assertThat(appended.get(1).get(10, TimeUnit.SECONDS).getKey()).isEqualTo(newAction(2).getKey());
+		assertThat(appended.get(2).get(10, TimeUnit.SECONDS).getKey()).isEqualTo(newAction(3).getKey());
+		assertThat(this.mongoOperations.count(new Query(), ActionEntity.class)).isEqualTo(3);
+	}
+
+	@Test
+	public void testStopWritesEveryActionAppendedMeanwhile() throws Exception {
+		// GIVEN a writer that flushes after a minute
+		startWriter(1000, 60000);
+
+		// WHEN 200 actions are appended while the writer stops
+		List<Future<ActionEntity>> appended = appendAll(1, 200);
+		this.writer.stop();
+
+		// THEN every append returns and every action is written
+		for (Future<ActionEntity> future : appended) {
+			assertThat(future.get(20, TimeUnit.SECONDS)).isNotNull();
+		}
+		assertThat(this.mongoOperations.count(new Query(), ActionEntity.class)).isEqualTo(200);
+	}
+
+	@Test
+	public void testAppendAfterStopIsWrittenDirectly() throws Exception {
+		// GIVEN a writer that was stopped
+		startWriter(1000, 60000);
+		this.writer.stop();
+
+		// WHEN an action is appended
+		ActionEntity rv = this.writer.append(newAction(1));
+
+		// THEN the action is written
+		assertThat(rv.getKey()).isEqualTo(newAction(1).getKey());
+		assertThat(this.mongoOperations.count(new Query(), ActionEntity.class)).isEqualTo(1);
+	}
+
+	private void startWriter(int batchSize, long flushMillis) {
+		this.writer = new ActionAppendWriter(this.mongoOperations);
+		this.writer.setEnabled(true);
+		this.writer.setBatchSize(batchSize);
+		this.writer.setFlushMillis(flushMillis);
+		this.writer.setQueueCapacity(10000);
+		this.writer.setTimeoutMillis(30000);
+		this.writer.start();
+	}
+
+	private List<Future<ActionEntity>> appendAll(long firstId, long lastId) {
+		List<Future<ActionEntity>> rv = new ArrayList<>();
+		for (long id = firstId; id <= lastId; id++) {
+			ActionEntity action = newAction(id);
+			rv.add(this.pool.submit(() -> this.writer.append(action)));
+		}
+		return rv;
+	}
+
+	private ActionEntity newAction(long id) {
+		ActionEntity action = this.factory.createNewAction("1", "testSmartspace", "testType", new Date(),
+				"test@gmail.com", "testSmartspace", new HashMap<String, Object>());
+		action.setKey(new ActionKey("testSmartspace", id));
+		return action;
+	}
+}
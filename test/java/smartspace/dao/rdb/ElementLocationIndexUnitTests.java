@@ -0,0 +1,151 @@
+package smartspace.dao.rdb;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import smartspace.data.ElementEntity;
+import smartspace.data.ElementKey;
+import smartspace.data.Location;
+
+public class ElementLocationIndexUnitTests {
+	private static final String SMARTSPACE = "2019B.nadav.peleg";
+
+	private ElementLocationIndex index;
+
+	@Before
+	public void setup() {
+		// an index that is never built from the database
+		this.index = new ElementLocationIndex(null);
+		this.index.setEnabled(true);
+		this.index.setCellSize(1.0);
+		this.index.setMaxEntries(100);
+	}
+
+	@Test
+	public void testSearchBeforeBuildIsNotAnswered() throws Exception {
+		// GIVEN the index was not built yet
+
+		// WHEN I search by location
+		// THEN the index can't answer
+		assertThat(this.index.search(true, 0, 0, 10, 10, 0)).isEmpty();
+	}
+
+	@Test
+	public void testSearchFiltersByExactDistance() throws Exception {
+		// GIVEN an element in the center and one in the corner of the bounding square
+		this.index.load(Arrays.asList(element(1, 2, 3, false), element(2, 2.9, 3.9, false)).iterator());
+
+		// WHEN I search around (2, 3) with distance 1
+		List<ElementKey> keys = this.index.search(true, 2, 3, 1, 10, 0).get();
+
+		// THEN only the element in the center is found
+		assertThat(keys).containsExactly(new ElementKey(SMARTSPACE, 1));
+	}
+
+	@Test
+	public void testSearchMeasuresOnTheSphere() throws Exception {
+		// GIVEN an element 1.8 degrees of longitude east of (60, 10), 0.9 degrees of arc away
+		this.index.load(Arrays.asList(element(1, 60, 11.8, false)).iterator());
+
+		// WHEN I search around (60, 10) with distance 1
+		List<ElementKey> keys = this.index.search(true, 60, 10, 1, 10, 0).get();
+
+		// THEN it is found, like $centerSphere finds it
+		assertThat(keys).containsExactly(new ElementKey(SMARTSPACE, 1));
+	}
+
+	@Test
+	public void testSearchCrossesTheAntimeridian() throws Exception {
+		// GIVEN an element just west of the antimeridian
+		this.index.load(Arrays.asList(element(1, 0, 179.5, false)).iterator());
+
+		// WHEN I search just east of it
+		List<ElementKey> keys = this.index.search(true, 0, -179.8, 1, 10, 0).get();
+
+		// THEN it is found
+		assertThat(keys).containsExactly(new ElementKey(SMARTSPACE, 1));
+	}
+
+	@Test
+	public void testInvalidLocationIsNotIndexed() throws Exception {
+		// GIVEN an element whose x is not a latitude, it has no location.point
+		this.index.load(Arrays.asList(element(1, 95, 3, false)).iterator());
+
+		// WHEN I search around it
+		// THEN it is not found, like the 2dsphere query doesn't find it
+		assertThat(this.index.search(true, 90, 3, 10, 10, 0).get()).isEmpty();
+	}
+
+	@Test
+	public void testSearchSkipsExpiredForPlayers() throws Exception {
+		// GIVEN an active and an expired element at the same location
+		this.index.load(Arrays.asList(element(1, 2, 3, false), element(2, 2, 3, true)).iterator());
+
+		// WHEN I search with and without expired elements
+		// THEN the expired element is only found when expired elements are included
+		assertThat(this.index.search(false, 2, 3, 1, 10, 0).get()).containsExactly(new ElementKey(SMARTSPACE, 1));
+		assertThat(this.index.search(true, 2, 3, 1, 10, 0).get()).containsExactly(new ElementKey(SMARTSPACE, 1),
+				new ElementKey(SMARTSPACE, 2));
+	}
+
+	@Test
+	public void testSearchPagesOrderedByKey() throws Exception {
+		// GIVEN 5 elements around (10, 10) added in reverse key order
+		this.index.load(Collections.<ElementEntity>emptyIterator());
+		for (long id = 5; id >= 1; id--) {
+			this.index.put(element(id, 10 + id / 10.0, 10, false));
+		}
+
+		// WHEN I read the second page of size 2
+		List<ElementKey> keys = this.index.search(false, 10, 10, 1, 2, 1).get();
+
+		// THEN I get the third and fourth keys
+		assertThat(keys).containsExactly(new ElementKey(SMARTSPACE, 3), new ElementKey(SMARTSPACE, 4));
+	}
+
+	@Test
+	public void testPutMovesAndRemoveDeletes() throws Exception {
+		// GIVEN an element at (0, 0)
+		this.index.load(Arrays.asList(element(1, 0, 0, false)).iterator());
+
+		// WHEN the element moves to (50, 50)
+		this.index.put(element(1, 50, 50, false));
+
+		// THEN it is only found at the new location
+		assertThat(this.index.search(false, 0, 0, 1, 10, 0).get()).isEmpty();
+		assertThat(this.index.search(false, 50, 50, 1, 10, 0).get()).hasSize(1);
+
+		// AND it is not found after it was removed
+		this.index.remove(new ElementKey(SMARTSPACE, 1));
+		assertThat(this.index.search(false, 50, 50, 1, 10, 0).get()).isEmpty();
+	}
+
+	@Test
+	public void testIndexOverBudgetIsDisabled() throws Exception {
+		// GIVEN a budget of 100 elements
+
+		// WHEN I build the index with 101 elements
+		ElementEntity[] elements = new ElementEntity[101];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = element(i + 1, 1, 1, false);
+		}
+		this.index.load(Arrays.asList(elements).iterator());
+
+		// THEN the index does not answer searches
+		assertThat(this.index.search(false, 1, 1, 1, 10, 0)).isEmpty();
+	}
+
+	private ElementEntity element(long id, double x, double y, boolean expired) {
+		ElementEntity element = new ElementEntity();
+		element.setKey(new ElementKey(SMARTSPACE, id));
+		element.setLocation(new Location(x, y));
+		element.setExpired(expired);
+		return element;
+	}
+}
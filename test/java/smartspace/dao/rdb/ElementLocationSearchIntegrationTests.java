@@ -0,0 +1,145 @@
+package smartspace.dao.rdb;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import smartspace.dao.EnhancedElementDao;
+import smartspace.data.ElementEntity;
+import smartspace.data.ElementKey;
+import smartspace.data.Location;
+import smartspace.data.util.EntityFactory;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@TestPropertySource(properties = { "spring.profiles.active=default, test",
+		"smartspace.elements.locationIndex.refreshSeconds=0" })
+public class ElementLocationSearchIntegrationTests {
+	private EnhancedElementDao<ElementKey> elementDao;
+	private ElementLocationIndex locationIndex;
+	private MongoOperations mongoOperations;
+	private EntityFactory factory;
+
+	// the elements near (10, 10) in key order
+	private List<ElementKey> keys;
+
+	@Autowired
+	public void setElementDao(EnhancedElementDao<ElementKey> elementDao) {
+		this.elementDao = elementDao;
+	}
+
+	@Autowired
+	public void setLocationIndex(ElementLocationIndex locationIndex) {
+		this.locationIndex = locationIndex;
+	}
+
+	@Autowired
+	public void setMongoOperations(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	@Autowired
+	public void setFactory(EntityFactory factory) {
+		this.factory = factory;
+	}
+
+	@Before
+	public void setup() {
+		// GIVEN the database and the location index contain 5 elements near (10, 10)
+		this.keys = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			this.keys.add(this.elementDao.create(this.factory.createNewElement("element" + i, "testType",
+					new Location(10, 10.1 + i * 0.1), new Date(), "test@gmail.com", "testSmartspace", false,
+					new HashMap<String, Object>())).getKey());
+		}
+		Collections.sort(this.keys);
+		this.locationIndex.rebuild();
+	}
+
+	@After
+	public void teardown() {
+		this.elementDao.deleteAll();
+	}
+
+	@Test
+	public void testSearchSkipsElementsChangedByAnotherInstance() throws Exception {
+		// GIVEN another instance deleted the first element, expired the second and
+		// moved the third away, without updating this index
+		changeElsewhere();
+
+		// WHEN I search the first 2 elements near (10, 10)
+		List<ElementEntity> rv = this.elementDao.searchByLocation(false, 10.0, 10.0, 1.0, 2, 0);
+
+		// THEN I receive the 2 unchanged elements
+		assertThat(keysOf(rv)).containsExactly(this.keys.get(3), this.keys.get(4));
+	}
+
+	@Test
+	public void testKeysetSearchSkipsElementsChangedByAnotherInstance() throws Exception {
+		// GIVEN another instance deleted the first element, expired the second and
+		// moved the third away, without updating this index
+		changeElsewhere();
+
+		// WHEN I search the first 2 elements near (10, 10) and then the next 2
+		List<ElementEntity> first = this.elementDao.searchByLocationUsingKeyset(false, 10.0, 10.0, 1.0, null, 2);
+		List<ElementEntity> next = this.elementDao.searchByLocationUsingKeyset(false, 10.0, 10.0, 1.0,
+				first.get(first.size() - 1).getKey(), 2);
+
+		// THEN the first page is full with the 2 unchanged elements
+		// AND there is nothing after them
+		assertThat(keysOf(first)).containsExactly(this.keys.get(3), this.keys.get(4));
+		assertThat(next).isEmpty();
+	}
+
+	@Test
+	public void testSearchCorrectsTheIndex() throws Exception {
+		// GIVEN another instance deleted the first element, expired the second and
+		// moved the third away, without updating this index
+		changeElsewhere();
+
+		// WHEN I search the elements near (10, 10)
+		this.elementDao.searchByLocation(false, 10.0, 10.0, 1.0, 10, 0);
+
+		// THEN the index no longer finds the changed elements
+		// AND still finds the expired one when expired elements are included
+		assertThat(this.locationIndex.search(false, 10, 10, 1, 10, 0).get()).containsExactly(this.keys.get(3),
+				this.keys.get(4));
+		assertThat(this.locationIndex.search(true, 10, 10, 1, 10, 0).get()).containsExactly(this.keys.get(1),
+				this.keys.get(3), this.keys.get(4));
+	}
+
+	private void changeElsewhere() {
+		this.mongoOperations.remove(byKey(this.keys.get(0)), ElementEntity.class);
+		this.mongoOperations.updateFirst(byKey(this.keys.get(1)), new Update().set("expired", true),
+				ElementEntity.class);
+		Location away = new Location(50, 50);
+		this.mongoOperations.updateFirst(byKey(this.keys.get(2)), new Update().set("location", away),
+				ElementEntity.class);
+	}
+
+	private Query byKey(ElementKey key) {
+		return new Query(Criteria.where("_id").is(this.mongoOperations.getConverter().convertToMongoType(key)));
+	}
+
+	private List<ElementKey> keysOf(List<ElementEntity> elements) {
+		return elements.stream().map(ElementEntity::getKey).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,68 @@
+package smartspace.dao.rdb;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@TestPropertySource(properties = { "spring.profiles.active=default, test" })
+public class RdbSequenceDaoIntegrationTests {
+	private static final String SEQUENCE_NAME = "test_sequence";
+
+	private RdbSequenceDao sequenceDao;
+
+	@Autowired
+	public void setSequenceDao(RdbSequenceDao sequenceDao) {
+		this.sequenceDao = sequenceDao;
+	}
+
+	@Test
+	public void testGenerateNextIdIsIncreasing() throws Exception {
+		// GIVEN the sequence dao is initialized
+
+		// WHEN I generate 200 ids one after the other
+		List<Long> ids = IntStream.range(0, 200).mapToObj(i -> this.sequenceDao.generateNextId(SEQUENCE_NAME))
+				.collect(Collectors.toList());
+
+		// THEN every id is greater than the one before it
+		for (int i = 1; i < ids.size(); i++) {
+			assertThat(ids.get(i)).isGreaterThan(ids.get(i - 1));
+		}
+	}
+
+	@Test
+	public void testGenerateNextIdConcurrentlyHasNoDuplicates() throws Exception {
+		// GIVEN 8 threads sharing the sequence dao
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		Callable<Long> nextId = () -> this.sequenceDao.generateNextId(SEQUENCE_NAME);
+
+		// WHEN the threads generate 1000 ids together
+		List<Future<Long>> futures = pool.invokeAll(
+				IntStream.range(0, 1000).mapToObj(i -> nextId).collect(Collectors.toList()));
+		pool.shutdown();
+
+		Set<Long> ids = new HashSet<>();
+		for (Future<Long> future : futures) {
+			ids.add(future.get());
+		}
+
+		// THEN all 1000 ids are different
+		assertThat(ids).hasSize(1000);
+	}
+}
@@ -0,0 +1,60 @@
+package smartspace.dao.rdb;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimeOrderedIdGeneratorUnitTests {
+	private static final int NODE_ID = 7;
+
+	private TimeOrderedIdGenerator generator;
+
+	@Before
+	public void setup() {
+		// a lease that always holds node id 7, without a database
+		NodeIdLease lease = new NodeIdLease(null) {
+			@Override
+			public int currentNodeId() {
+				return NODE_ID;
+			}
+		};
+		this.generator = new TimeOrderedIdGenerator(lease);
+	}
+
+	@Test
+	public void testIdsAreStrictlyIncreasing() throws Exception {
+		// GIVEN the generator is initialized
+
+		// WHEN I generate 10000 ids, more than fit in one millisecond
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			ids.add(this.generator.nextId("elements_sequence"));
+		}
+
+		// THEN every id is positive and greater than the one before it
+		assertThat(ids.get(0)).isPositive();
+		for (int i = 1; i < ids.size(); i++) {
+			assertThat(ids.get(i)).isGreaterThan(ids.get(i - 1));
+		}
+	}
+
+	@Test
+	public void testIdContainsNodeIdAndTimestamp() throws Exception {
+		// GIVEN the generator is initialized
+		long before = System.currentTimeMillis() - TimeOrderedIdGenerator.EPOCH;
+
+		// WHEN I generate an id
+		long id = this.generator.nextId("actions_sequence");
+
+		// THEN the node id and the creation time can be read back from it
+		long nodeId = (id >>> TimeOrderedIdGenerator.COUNTER_BITS) & ((1L << TimeOrderedIdGenerator.NODE_BITS) - 1);
+		long tick = id >>> (TimeOrderedIdGenerator.NODE_BITS + TimeOrderedIdGenerator.COUNTER_BITS);
+
+		assertThat(nodeId).isEqualTo(NODE_ID);
+		assertThat(tick).isBetween(before, System.currentTimeMillis() - TimeOrderedIdGenerator.EPOCH);
+	}
+}
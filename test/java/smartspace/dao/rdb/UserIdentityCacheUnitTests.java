@@ -0,0 +1,131 @@
+package smartspace.dao.rdb;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import smartspace.data.UserKey;
+import smartspace.data.UserRole;
+
+public class UserIdentityCacheUnitTests {
+	private static final UserKey ADMIN = new UserKey("2019B.nadav.peleg", "admin@gmail.com");
+
+	private UserIdentityCache cache;
+	private AtomicInteger loads;
+	private UserRole role;
+
+	@Before
+	public void setup() {
+		this.cache = new UserIdentityCache();
+		this.cache.setTtlSeconds(30);
+		this.cache.setMaxEntries(100);
+		this.loads = new AtomicInteger();
+		this.role = UserRole.ADMIN;
+	}
+
+	@Test
+	public void testHitsAndMissesAreCounted() throws Exception {
+		// GIVEN the cache is empty
+
+		// WHEN I get the role of the same user 3 times
+		this.cache.getRole(ADMIN, loader());
+		this.cache.getRole(ADMIN, loader());
+		this.cache.getRole(ADMIN, loader());
+
+		// THEN the user is loaded once, and the stats show 1 miss and 2 hits
+		assertThat(this.loads.get()).isEqualTo(1);
+		assertThat(this.cache.getStats())
+			.containsEntry("size", 1)
+			.containsEntry("hits", 2L)
+			.containsEntry("misses", 1L)
+			.containsEntry("evictions", 0L)
+			.containsEntry("hitRatio", 2.0 / 3);
+	}
+
+	@Test
+	public void testInvalidateReloadsTheRole() throws Exception {
+		// GIVEN the role of an admin is cached
+		this.cache.getRole(ADMIN, loader());
+
+		// WHEN the admin is demoted and invalidated
+		this.role = UserRole.PLAYER;
+		this.cache.invalidate(ADMIN);
+
+		// THEN the next read loads the new role
+		assertThat(this.cache.getRole(ADMIN, loader())).contains(UserRole.PLAYER);
+		assertThat(this.loads.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void testRoleLoadedBeforeAnInvalidationIsNotCached() throws Exception {
+		// GIVEN the admin is demoted while its role is being loaded
+		Function<UserKey, Optional<UserRole>> racingLoader = key -> {
+			Optional<UserRole> rv = loader().apply(key);
+			this.role = UserRole.PLAYER;
+			this.cache.invalidate(key);
+			return rv;
+		};
+
+		// WHEN the role is read
+		this.cache.getRole(ADMIN, racingLoader);
+
+		// THEN the old role is not cached, the next read loads the new role
+		assertThat(this.cache.getRole(ADMIN, loader())).contains(UserRole.PLAYER);
+		assertThat(this.loads.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void testMissingUserIsNotCached() throws Exception {
+		// GIVEN the user doesn't exist
+		this.role = null;
+
+		// WHEN I get its role twice
+		this.cache.getRole(ADMIN, loader());
+		Optional<UserRole> rv = this.cache.getRole(ADMIN, loader());
+
+		// THEN it is loaded both times
+		assertThat(rv).isEmpty();
+		assertThat(this.loads.get()).isEqualTo(2);
+		assertThat(this.cache.getStats()).containsEntry("size", 0).containsEntry("misses", 2L);
+	}
+
+	@Test
+	public void testZeroTtlDisablesTheCache() throws Exception {
+		// GIVEN a cache with ttlSeconds 0
+		this.cache.setTtlSeconds(0);
+
+		// WHEN I get the role twice
+		this.cache.getRole(ADMIN, loader());
+		this.cache.getRole(ADMIN, loader());
+
+		// THEN it is loaded both times
+		assertThat(this.loads.get()).isEqualTo(2);
+		assertThat(this.cache.getStats()).containsEntry("hits", 0L);
+	}
+
+	@Test
+	public void testFullCacheEvicts() throws Exception {
+		// GIVEN a cache of 2 users that is full
+		this.cache.setMaxEntries(2);
+		this.cache.getRole(new UserKey("smartspace", "a@gmail.com"), loader());
+		this.cache.getRole(new UserKey("smartspace", "b@gmail.com"), loader());
+
+		// WHEN a third user is read
+		this.cache.getRole(ADMIN, loader());
+
+		// THEN one user is evicted to make room
+		assertThat(this.cache.getStats()).containsEntry("size", 2).containsEntry("evictions", 1L);
+	}
+
+	private Function<UserKey, Optional<UserRole>> loader() {
+		return key -> {
+			this.loads.incrementAndGet();
+			return Optional.ofNullable(this.role);
+		};
+	}
+}
@@ -437,7 +437,7 @@ public class ActionControllerIntegrationTests {
 		actions[3].setActionKey(null);
 		actions[3].setType(null);
 		
-		// THEN there is an exception and the database should be empty (@Transactional behavior working as intended)
+		// THEN there is an exception and the database should be empty (the batch is validated before it is written)
 		try {
 			this.restTemplate.postForObject(this.baseUrl, actions, ActionBoundary[].class, admin.getUserSmartspace(), admin.getUserEmail());
 			throw new RuntimeException("some actions are invalid but there was no exception"); // will only get to this line if there was no exception
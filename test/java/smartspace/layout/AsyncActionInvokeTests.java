@@ -0,0 +1,329 @@
+package smartspace.layout;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import smartspace.dao.EnhancedActionDao;
+import smartspace.dao.EnhancedElementDao;
+import smartspace.dao.EnhancedUserDao;
+import smartspace.data.ActionEntity;
+import smartspace.data.ActionKey;
+import smartspace.data.ActionTypes;
+import smartspace.data.ElementEntity;
+import smartspace.data.ElementKey;
+import smartspace.data.UserEntity;
+import smartspace.data.UserKey;
+import smartspace.data.UserRole;
+import smartspace.data.util.Faker;
+import smartspace.infra.ActionInvocation;
+import smartspace.infra.ActionInvokePipeline;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = { "spring.profiles.active=default, test",
+		"smartspace.actions.async.partitions=4",
+		"smartspace.actions.async.queueCapacity=2",
+		"smartspace.actions.async.statusRetainSeconds=1" })
+public class AsyncActionInvokeTests {
+	private String baseUrl;
+	private int port;
+	private RestTemplate restTemplate;
+
+	private EnhancedUserDao<UserKey> userDao;
+	private EnhancedElementDao<ElementKey> elementDao;
+	private EnhancedActionDao actionDao;
+	private ActionInvokePipeline pipeline;
+	private Faker faker;
+
+	// holds the partition of an element until the test releases it
+	private CountDownLatch release = new CountDownLatch(1);
+
+	@LocalServerPort
+	public void setPort(int port) {
+		this.port = port;
+		this.restTemplate = new RestTemplate();
+	}
+
+	@Autowired
+	public void setUserDao(EnhancedUserDao<UserKey> userDao) {
+		this.userDao = userDao;
+	}
+
+	@Autowired
+	public void setElementDao(EnhancedElementDao<ElementKey> elementDao) {
+		this.elementDao = elementDao;
+	}
+
+	@Autowired
+	public void setActionDao(EnhancedActionDao actionDao) {
+		this.actionDao = actionDao;
+	}
+
+	@Autowired
+	public void setPipeline(ActionInvokePipeline pipeline) {
+		this.pipeline = pipeline;
+	}
+
+	@PostConstruct
+	public void init() {
+		this.baseUrl = "http://localhost:" + port + "/smartspace/actions";
+		this.faker = new Faker();
+	}
+
+	@After
+	public void tearDown() {
+		this.release.countDown();
+		this.userDao.deleteAll();
+		this.elementDao.deleteAll();
+		this.actionDao.deleteAll();
+	}
+
+	@Test
+	public void testInvokeAsyncReturnsAcceptedWithStatusLocation() throws Exception {
+		// GIVEN the database contains a player and an element
+		UserEntity player = this.userDao.importUser(this.faker.entity().user(UserRole.PLAYER));
+		ElementEntity element = this.elementDao.importElement(this.faker.entity().element());
+
+		// WHEN the player invokes an echo action with async=true
+		ResponseEntity<ActionBoundary> rv = this.restTemplate.postForEntity(this.baseUrl + "?async=true",
+				echo(element, player), ActionBoundary.class);
+
+		// THEN the response is 202 with the action key
+		// AND its location is the status of the action for the player
+		assertThat(rv.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+		Map<String, String> key = rv.getBody().getActionKey();
+		assertThat(rv.getHeaders().getLocation().toString()).isEqualTo("/smartspace/actions/status/"
+				+ player.getUserSmartspace() + "/" + player.getUserEmail() + "/" + key.get("smartspace") + "/"
+				+ key.get("id"));
+	}
+
+	@Test
+	public void testStatusIsQueuedThenDone() throws Exception {
+		// GIVEN the database contains a player and an element
+		// AND the partition of the element is busy
+		UserEntity player = this.userDao.importUser(this.faker.entity().user(UserRole.PLAYER));
+		ElementEntity element = this.elementDao.importElement(this.faker.entity().element());
+		holdPartitionOf(element);
+
+		// WHEN the player invokes an echo action with async=true
+		ActionBoundary queued = this.restTemplate.postForObject(this.baseUrl + "?async=true",
+				echo(element, player), ActionBoundary.class);
+
+		// THEN its status is QUEUED until the partition is free
+		// AND then DONE with the created action
+		assertThat(status(queued, 0).getStatus()).isEqualTo(ActionInvocation.Status.QUEUED.name());
+		this.release.countDown();
+
+		ActionInvocationBoundary done = status(queued, 10000);
+		assertThat(done.getStatus()).isEqualTo(ActionInvocation.Status.DONE.name());
+		assertThat(done.getAction().getActionKey()).isEqualTo(queued.getActionKey());
+		assertThat(this.actionDao.readAll()).hasSize(1);
+	}
+
+	@Test
+	public void testStatusIsFailedWhenThePluginFails() throws Exception {
+		// GIVEN the database contains a player and an element
+		UserEntity player = this.userDao.importUser(this.faker.entity().user(UserRole.PLAYER));
+		ElementEntity element = this.elementDao.importElement(this.faker.entity().element());
+
+		// WHEN the player invokes a markItem action with a mark status that is not a boolean
+		ActionBoundary action = echo(element, player);
+		action.setType("markItem");
+		action.setProperties(Collections.singletonMap("markStatus", "not a boolean"));
+		ActionBoundary queued = this.restTemplate.postForObject(this.baseUrl + "?async=true", action,
+				ActionBoundary.class);
+
+		// THEN its status is FAILED with the error
+		// AND no action is created
+		ActionInvocationBoundary failed = status(queued, 10000);
+		assertThat(failed.getStatus()).isEqualTo(ActionInvocation.Status.FAILED.name());
+		assertThat(failed.getError()).isNotEmpty();
+		assertThat(this.actionDao.readAll()).isEmpty();
+	}
+
+	@Test
+	public void testStatusIsNotFoundAfterRetention() throws Exception {
+		// GIVEN an action invoked with async=true was done
+		UserEntity player = this.userDao.importUser(this.faker.entity().user(UserRole.PLAYER));
+		ElementEntity element = this.elementDao.importElement(this.faker.entity().element());
+		ActionBoundary queued = this.restTemplate.postForObject(this.baseUrl + "?async=true",
+				echo(element, player), ActionBoundary.class);
+		assertThat(status(queued, 10000).getStatus()).isEqualTo(ActionInvocation.Status.DONE.name());
+
+		// WHEN its status is read after the 1 second retention
+		Thread.sleep(1500);
+
+		// THEN the response is 404
+		assertThatThrownBy(() -> status(queued, 0))
+				.isInstanceOf(HttpClientErrorException.class)
+				.satisfies(e -> assertThat(((HttpClientErrorException) e).getStatusCode())
+						.isEqualTo(HttpStatus.NOT_FOUND));
+	}
+
+	@Test
+	public void testStatusOfAnotherPlayersActionIsNotFound() throws Exception {
+		// GIVEN the database contains 2 players, an admin and an element
+		// AND the first player invoked an action with async=true and it was done
+		UserEntity player = this.userDao.importUser(this.faker.entity().user(UserRole.PLAYER));
+		UserEntity other = this.userDao.importUser(this.faker.entity().user(UserRole.PLAYER));
+		UserEntity admin = this.userDao.importUser(this.faker.entity().user(UserRole.ADMIN));
+		ElementEntity element = this.elementDao.importElement(this.faker.entity().element());
+		ActionBoundary queued = this.restTemplate.postForObject(this.baseUrl + "?async=true",
+				echo(element, player), ActionBoundary.class);
+		assertThat(status(queued, 10000).getStatus()).isEqualTo(ActionInvocation.Status.DONE.name());
+
+		// WHEN the other player and a user that doesn't exist read its status
+		// THEN the response is 404
+		// AND an admin can read it
+		assertThatThrownBy(() -> status(other, queued, 0))
+				.isInstanceOf(HttpClientErrorException.class)
+				.satisfies(e -> assertThat(((HttpClientErrorException) e).getStatusCode())
+						.isEqualTo(HttpStatus.NOT_FOUND));
+		UserEntity unknown = this.faker.entity().user(UserRole.ADMIN);
+		assertThatThrownBy(() -> status(unknown, queued, 0))
+				.isInstanceOf(HttpClientErrorException.class)
+				.satisfies(e -> assertThat(((HttpClientErrorException) e).getStatusCode())
+						.isEqualTo(HttpStatus.NOT_FOUND));
+		assertThat(status(admin, queued, 0).getStatus()).isEqualTo(ActionInvocation.Status.DONE.name());
+	}
+
+	@Test
+	public void testInvokeAsyncOnFullPartitionIsTooManyRequests() throws Exception {
+		// GIVEN the partition of an element is busy
+		// AND 2 actions of the element are waiting in it
+		UserEntity player = this.userDao.importUser(this.faker.entity().user(UserRole.PLAYER));
+		ElementEntity element = this.elementDao.importElement(this.faker.entity().element());
+		holdPartitionOf(element);
+		List<ActionBoundary> queued = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			queued.add(this.restTemplate.postForObject(this.baseUrl + "?async=true", echo(element, player),
+					ActionBoundary.class));
+		}
+
+		// WHEN the player invokes another action on the element with async=true
+		// THEN the response is 429
+		assertThatThrownBy(() -> this.restTemplate.postForObject(this.baseUrl + "?async=true",
+				echo(element, player), ActionBoundary.class))
+				.isInstanceOf(HttpClientErrorException.class)
+				.satisfies(e -> assertThat(((HttpClientErrorException) e).getStatusCode())
+						.isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+
+		// AND the waiting actions are still done
+		this.release.countDown();
+		for (ActionBoundary action : queued) {
+			assertThat(status(action, 10000).getStatus()).isEqualTo(ActionInvocation.Status.DONE.name());
+		}
+	}
+
+	@Test
+	public void testActionsOfAnElementAreProcessedInOrder() throws Exception {
+		// GIVEN 3 elements
+		List<ElementEntity> elements = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			elements.add(this.faker.entity().element());
+		}
+
+		// WHEN 60 actions are queued on the elements in turn, 2 at most waiting per partition
+		Map<String, List<Integer>> processed = Collections.synchronizedMap(new HashMap<>());
+		List<ActionInvocation> invocations = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			ElementEntity element = elements.get(i % elements.size());
+			int sequence = i;
+			ActionEntity action = this.faker.entity().action(element, new ActionKey("ordering", i));
+			invocations.add(submitWhenRoom(action, () -> {
+				processed.computeIfAbsent(element.getElementId(), id -> Collections.synchronizedList(new ArrayList<>()))
+						.add(sequence);
+				return action;
+			}));
+		}
+		for (ActionInvocation invocation : invocations) {
+			invocation.await(10000);
+		}
+
+		// THEN the actions of each element were processed in the order they were queued
+		assertThat(processed).hasSize(3);
+		processed.values().forEach(sequences -> assertThat(sequences).hasSize(20).isSorted());
+	}
+
+	private ActionInvocation submitWhenRoom(ActionEntity action, Supplier<ActionEntity> process)
+			throws InterruptedException {
+		while (true) {
+			try {
+				return this.pipeline.submit(action, process);
+			} catch (RuntimeException e) {
+				// the partition is full, the queued actions are processed meanwhile
+				Thread.sleep(5);
+			}
+		}
+	}
+
+	private void holdPartitionOf(ElementEntity element) throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		ActionEntity blocker = this.faker.entity().action(element, new ActionKey("blocker", 1));
+		this.pipeline.submit(blocker, () -> {
+			started.countDown();
+			try {
+				this.release.await(30, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return blocker;
+		});
+		started.await(10, TimeUnit.SECONDS);
+	}
+
+	private ActionBoundary echo(ElementEntity element, UserEntity player) {
+		ActionBoundary action = this.faker.boundary().action(element);
+		action.setActionKey(null);
+
+		Map<String, String> playerKey = new TreeMap<String, String>();
+		playerKey.put("smartspace", player.getUserSmartspace());
+		playerKey.put("email", player.getUserEmail());
+		action.setPlayer(playerKey);
+		action.setType(ActionTypes.Echo.name());
+		return action;
+	}
+
+	// the status as the player of the action
+	private ActionInvocationBoundary status(ActionBoundary queued, long waitMillis) {
+		return status(queued.getPlayer().get("smartspace"), queued.getPlayer().get("email"), queued, waitMillis);
+	}
+
+	private ActionInvocationBoundary status(UserEntity user, ActionBoundary queued, long waitMillis) {
+		return status(user.getUserSmartspace(), user.getUserEmail(), queued, waitMillis);
+	}
+
+	private ActionInvocationBoundary status(String userSmartspace, String userEmail, ActionBoundary queued,
+			long waitMillis) {
+		return this.restTemplate.getForObject(
+				this.baseUrl + "/status/{userSmartspace}/{userEmail}/{smartspace}/{id}?waitMillis={waitMillis}",
+				ActionInvocationBoundary.class, userSmartspace, userEmail, queued.getActionKey().get("smartspace"),
+				queued.getActionKey().get("id"), waitMillis);
+	}
+}
@@ -0,0 +1,223 @@
+package smartspace.layout;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.PostConstruct;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+
+import smartspace.dao.EnhancedActionDao;
+import smartspace.dao.EnhancedElementDao;
+import smartspace.dao.EnhancedUserDao;
+import smartspace.data.ActionKey;
+import smartspace.data.ActionTypes;
+import smartspace.data.ElementEntity;
+import smartspace.data.ElementKey;
+import smartspace.data.UserEntity;
+import smartspace.data.UserKey;
+import smartspace.data.UserRole;
+import smartspace.data.util.Faker;
+import smartspace.infra.ActionInvocation;
+import smartspace.plugin.MarkItemActionPlugin;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = { "spring.profiles.active=default, test", "smartspace.actions.batch.maxSize=5",
+		"smartspace.ids.strategy=sequence" })
+public class BatchActionInvokeTests {
+	private String baseUrl;
+	private int port;
+	private RestTemplate restTemplate;
+
+	private EnhancedUserDao<UserKey> userDao;
+	private EnhancedElementDao<ElementKey> elementDao;
+	private EnhancedActionDao actionDao;
+	private Faker faker;
+
+	@LocalServerPort
+	public void setPort(int port) {
+		this.port = port;
+		this.restTemplate = new RestTemplate();
+	}
+
+	@Autowired
+	public void setUserDao(EnhancedUserDao<UserKey> userDao) {
+		this.userDao = userDao;
+	}
+
+	@Autowired
+	public void setElementDao(EnhancedElementDao<ElementKey> elementDao) {
+		this.elementDao = elementDao;
+	}
+
+	@Autowired
+	public void setActionDao(EnhancedActionDao actionDao) {
+		this.actionDao = actionDao;
+	}
+
+	@PostConstruct
+	public void init() {
+		this.baseUrl = "http://localhost:" + port + "/smartspace/actions/batch";
+		this.faker = new Faker();
+	}
+
+	@After
+	public void tearDown() {
+		this.userDao.deleteAll();
+		this.elementDao.deleteAll();
+		this.actionDao.deleteAll();
+	}
+
+	@Test
+	public void testInvalidActionsFailAlone() throws Exception {
+		// GIVEN the database contains a player and 2 elements
+		UserEntity player = this.userDao.importUser(this.faker.entity().user(UserRole.PLAYER));
+		ElementEntity first = this.elementDao.importElement(this.faker.entity().element());
+		ElementEntity second = this.elementDao.importElement(this.faker.entity().element());
+
+		// WHEN the player invokes a batch of a valid action, an action of an unknown type,
+		// a valid action and an action on an element that doesn't exist
+		ActionBoundary unknownType = echo(first, player);
+		unknownType.setType("No none type");
+		ActionBoundary[] batch = { echo(first, player), unknownType, echo(second, player),
+				echo(this.faker.entity().element(), player) };
+		ActionInvocationBoundary[] rv = this.restTemplate.postForObject(this.baseUrl, batch,
+				ActionInvocationBoundary[].class);
+
+		// THEN the valid actions are done and the others failed, each in its place
+		// AND only the valid actions are in the database
+		assertThat(rv).extracting(ActionInvocationBoundary::getStatus).containsExactly(
+				ActionInvocation.Status.DONE.name(), ActionInvocation.Status.FAILED.name(),
+				ActionInvocation.Status.DONE.name(), ActionInvocation.Status.FAILED.name());
+		assertThat(rv[1].getError()).isNotEmpty();
+		assertThat(rv[3].getError()).isNotEmpty();
+		assertThat(this.actionDao.readAll()).hasSize(2);
+	}
+
+	@Test
+	public void testResultsAreInTheOrderOfTheActions() throws Exception {
+		// GIVEN the database contains a player and 5 elements
+		UserEntity player = this.userDao.importUser(this.faker.entity().user(UserRole.PLAYER));
+		List<ActionBoundary> batch = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			batch.add(echo(this.elementDao.importElement(this.faker.entity().element()), player));
+		}
+
+		// WHEN the player invokes an action on each element in one batch
+		ActionInvocationBoundary[] rv = this.restTemplate.postForObject(this.baseUrl,
+				batch.toArray(new ActionBoundary[0]), ActionInvocationBoundary[].class);
+
+		// THEN each result is the action on the element at the same place
+		assertThat(rv).hasSize(5);
+		for (int i = 0; i < rv.length; i++) {
+			assertThat(rv[i].getStatus()).isEqualTo(ActionInvocation.Status.DONE.name());
+			assertThat(rv[i].getAction().getElement()).isEqualTo(batch.get(i).getElement());
+		}
+		assertThat(this.actionDao.readAll()).hasSize(5);
+	}
+
+	@Test
+	public void testBatchOverMaxSizeIsRejected() throws Exception {
+		// GIVEN the database contains a player and an element
+		// AND a batch has at most 5 actions
+		UserEntity player = this.userDao.importUser(this.faker.entity().user(UserRole.PLAYER));
+		ElementEntity element = this.elementDao.importElement(this.faker.entity().element());
+
+		// WHEN the player invokes a batch of 6 actions
+		ActionBoundary[] batch = new ActionBoundary[6];
+		for (int i = 0; i < batch.length; i++) {
+			batch[i] = echo(element, player);
+		}
+
+		// THEN the batch is rejected
+		// AND no action is in the database
+		assertThatThrownBy(() -> this.restTemplate.postForObject(this.baseUrl, batch,
+				ActionInvocationBoundary[].class))
+				.isInstanceOf(HttpStatusCodeException.class);
+		assertThat(this.actionDao.readAll()).isEmpty();
+	}
+
+	@Test
+	public void testActionThatFailsToBeStoredHasNoSideEffects() throws Exception {
+		// GIVEN the database contains a player with 0 points and an element
+		// AND an action already has the key the batch's first action will get,
+		// the sequence gives this test's keys one after the other
+		UserEntity player = this.userDao.importUser(this.faker.entity().user(UserRole.PLAYER));
+		ElementEntity element = this.elementDao.importElement(this.faker.entity().element());
+		ActionKey next = this.actionDao.reserveKey();
+		this.actionDao.importAction(this.faker.entity().action(element,
+				new ActionKey(next.getActionSmartspace(), next.getId() + 1)));
+
+		// WHEN the player invokes a batch of 2 actions that mark the element
+		ActionBoundary[] batch = { markItem(element, player), markItem(element, player) };
+		ActionInvocationBoundary[] rv = this.restTemplate.postForObject(this.baseUrl, batch,
+				ActionInvocationBoundary[].class);
+
+		// THEN the first action failed to be stored and the second is done
+		// AND only the second action gave points
+		assertThat(rv).extracting(ActionInvocationBoundary::getStatus).containsExactly(
+				ActionInvocation.Status.FAILED.name(), ActionInvocation.Status.DONE.name());
+		assertThat(this.userDao.readById(player.getKey()).get().getPoints())
+				.isEqualTo(player.getPoints() + MarkItemActionPlugin.POINTS_PER_MARK);
+		assertThat(this.actionDao.readAll()).hasSize(2);
+	}
+
+	@Test
+	public void testActionWithInvalidInputIsNotStored() throws Exception {
+		// GIVEN the database contains a player and an element
+		UserEntity player = this.userDao.importUser(this.faker.entity().user(UserRole.PLAYER));
+		ElementEntity element = this.elementDao.importElement(this.faker.entity().element());
+
+		// WHEN the player invokes a batch of an action that marks the element and
+		// one whose mark status is not a boolean
+		ActionBoundary invalid = markItem(element, player);
+		invalid.setProperties(Collections.singletonMap("markStatus", "maybe"));
+		ActionBoundary[] batch = { markItem(element, player), invalid };
+		ActionInvocationBoundary[] rv = this.restTemplate.postForObject(this.baseUrl, batch,
+				ActionInvocationBoundary[].class);
+
+		// THEN the invalid action failed before it was stored
+		// AND only the valid action is in the database and gave points
+		assertThat(rv).extracting(ActionInvocationBoundary::getStatus).containsExactly(
+				ActionInvocation.Status.DONE.name(), ActionInvocation.Status.FAILED.name());
+		assertThat(this.actionDao.readAll()).hasSize(1);
+		assertThat(this.userDao.readById(player.getKey()).get().getPoints())
+				.isEqualTo(player.getPoints() + MarkItemActionPlugin.POINTS_PER_MARK);
+	}
+
+	private ActionBoundary markItem(ElementEntity element, UserEntity player) {
+		ActionBoundary action = echo(element, player);
+		action.setType("markItem");
+		action.setProperties(Collections.singletonMap("markStatus", true));
+		return action;
+	}
+
+	private ActionBoundary echo(ElementEntity element, UserEntity player) {
+		ActionBoundary action = this.faker.boundary().action(element);
+		action.setActionKey(null);
+
+		Map<String, String> playerKey = new TreeMap<String, String>();
+		playerKey.put("smartspace", player.getUserSmartspace());
+		playerKey.put("email", player.getUserEmail());
+		action.setPlayer(playerKey);
+		action.setType(ActionTypes.Echo.name());
+		return action;
+	}
+}
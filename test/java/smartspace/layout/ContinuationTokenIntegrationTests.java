@@ -0,0 +1,226 @@
+package smartspace.layout;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.RestTemplate;
+
+import smartspace.dao.EnhancedActionDao;
+import smartspace.dao.EnhancedElementDao;
+import smartspace.dao.EnhancedUserDao;
+import smartspace.dao.rdb.ElementLocationIndex;
+import smartspace.data.ActionKey;
+import smartspace.data.ElementEntity;
+import smartspace.data.ElementKey;
+import smartspace.data.Location;
+import smartspace.data.UserEntity;
+import smartspace.data.UserKey;
+import smartspace.data.UserRole;
+import smartspace.data.util.Faker;
+
+/**
+ * Walks whole listings page by page with the continuation token. The keys are
+ * chosen so that pages of 2 end between keys with the same id in different
+ * smartspaces, which sort by smartspace first.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = { "spring.profiles.active=default,test",
+		"smartspace.elements.locationIndex.refreshSeconds=0" })
+public class ContinuationTokenIntegrationTests {
+	private String baseUrl;
+	private int port;
+	private RestTemplate restTemplate;
+	private EnhancedElementDao<ElementKey> elementDao;
+	private EnhancedUserDao<UserKey> userDao;
+	private EnhancedActionDao actionDao;
+	private ElementLocationIndex locationIndex;
+	private MongoOperations mongoOperations;
+	private Faker faker;
+
+	@Autowired
+	public void setElementDao(EnhancedElementDao<ElementKey> elementDao) {
+		this.elementDao = elementDao;
+	}
+
+	@Autowired
+	public void setUserDao(EnhancedUserDao<UserKey> userDao) {
+		this.userDao = userDao;
+	}
+
+	@Autowired
+	public void setActionDao(EnhancedActionDao actionDao) {
+		this.actionDao = actionDao;
+	}
+
+	@Autowired
+	public void setLocationIndex(ElementLocationIndex locationIndex) {
+		this.locationIndex = locationIndex;
+	}
+
+	@Autowired
+	public void setMongoOperations(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	@LocalServerPort
+	public void setPort(int port) {
+		this.port = port;
+		this.restTemplate = new RestTemplate();
+	}
+
+	@PostConstruct
+	public void init() {
+		this.baseUrl = "http://localhost:" + port + "/smartspace";
+		this.faker = new Faker();
+	}
+
+	@After
+	public void tearDown() {
+		this.actionDao.deleteAll();
+		this.elementDao.deleteAll();
+		this.userDao.deleteAll();
+	}
+
+	@Test
+	public void testAdminWalksAllElements() throws Exception {
+		// GIVEN the database contains an admin and 5 elements, 2 of them expired
+		UserEntity admin = this.userDao.create(faker.entity().user(UserRole.ADMIN));
+		List<ElementKey> keys = tiedElementKeys();
+		for (int i = 0; i < keys.size(); i++) {
+			this.elementDao.importElement(element(keys.get(i), new Location(10, 10), i % 2 == 1));
+		}
+
+		// WHEN the admin GETs elements of size 2 following the continuation token
+		List<ElementBoundary> rv = new ArrayList<>();
+		int requests = walk(this.baseUrl + "/admin/elements/{adminSmartspace}/{adminEmail}?size=2&continuation={continuation}",
+				ElementBoundary[].class, rv, admin);
+
+		// THEN all 5 elements are received in key order, in 3 pages
+		assertThat(requests).isEqualTo(3);
+		assertThat(rv).extracting(ElementBoundary::getKey).containsExactlyElementsOf(boundaryKeys(keys));
+	}
+
+	@Test
+	public void testPlayerWalksAllElementsThatAreNotExpired() throws Exception {
+		// GIVEN the database contains a player, 5 elements and 1 expired element
+		UserEntity player = this.userDao.create(faker.entity().user(UserRole.PLAYER));
+		List<ElementKey> keys = tiedElementKeys();
+		keys.forEach(key -> this.elementDao.importElement(element(key, new Location(10, 10), false)));
+		this.elementDao.importElement(element(new ElementKey("b-smartspace", 1), new Location(10, 10), true));
+
+		// WHEN the player GETs elements of size 2 following the continuation token
+		List<ElementBoundary> rv = new ArrayList<>();
+		int requests = walk(this.baseUrl + "/elements/{userSmartspace}/{userEmail}?size=2&continuation={continuation}",
+				ElementBoundary[].class, rv, player);
+
+		// THEN the 5 elements that are not expired are received in key order, in 3 pages
+		assertThat(requests).isEqualTo(3);
+		assertThat(rv).extracting(ElementBoundary::getKey).containsExactlyElementsOf(boundaryKeys(keys));
+	}
+
+	@Test
+	public void testPlayerWalksLocationSearch() throws Exception {
+		// GIVEN the database contains a player, 5 elements near (10, 10) and 1 far away
+		// AND the location index was built
+		// AND then another instance deleted the second element without updating the index
+		UserEntity player = this.userDao.create(faker.entity().user(UserRole.PLAYER));
+		List<ElementKey> keys = tiedElementKeys();
+		keys.forEach(key -> this.elementDao.importElement(element(key, new Location(10, 10.5), false)));
+		this.elementDao.importElement(element(new ElementKey("b-smartspace", 1), new Location(40, 40), false));
+		this.locationIndex.rebuild();
+		ElementKey deleted = keys.remove(1);
+		this.mongoOperations.remove(new Query(Criteria.where("_id")
+				.is(this.mongoOperations.getConverter().convertToMongoType(deleted))), ElementEntity.class);
+
+		// WHEN the player searches within 1 degree of (10, 10), 2 at a time, following the
+		// continuation token
+		List<ElementBoundary> rv = new ArrayList<>();
+		int requests = walk(this.baseUrl + "/elements/{userSmartspace}/{userEmail}"
+				+ "?search=location&x=10&y=10&distance=1&size=2&continuation={continuation}",
+				ElementBoundary[].class, rv, player);
+
+		// THEN the 4 elements near (10, 10) are received in key order, each page full until the last
+		assertThat(rv).extracting(ElementBoundary::getKey).containsExactlyElementsOf(boundaryKeys(keys));
+		assertThat(requests).isEqualTo(3);
+	}
+
+	@Test
+	public void testAdminWalksAllActions() throws Exception {
+		// GIVEN the database contains an admin, an element and 5 actions
+		UserEntity admin = this.userDao.create(faker.entity().user(UserRole.ADMIN));
+		ElementEntity element = this.elementDao.create(faker.entity().element());
+		List<ActionKey> keys = Arrays.asList(new ActionKey("a-smartspace", 1), new ActionKey("a-smartspace", 2),
+				new ActionKey("b-smartspace", 2), new ActionKey("b-smartspace", 3), new ActionKey("c-smartspace", 2));
+		keys.forEach(key -> this.actionDao.importAction(faker.entity().action(element, key)));
+
+		// WHEN the admin GETs actions of size 2 following the continuation token
+		List<ActionBoundary> rv = new ArrayList<>();
+		int requests = walk(this.baseUrl + "/admin/actions/{adminSmartspace}/{adminEmail}?size=2&continuation={continuation}",
+				ActionBoundary[].class, rv, admin);
+
+		// THEN all 5 actions are received in key order, in 3 pages
+		assertThat(requests).isEqualTo(3);
+		assertThat(rv).extracting(action -> action.getActionKey().get("smartspace") + "/" + action.getActionKey().get("id"))
+				.containsExactlyElementsOf(keys.stream().map(key -> key.getActionSmartspace() + "/" + key.getId())
+						.collect(Collectors.toList()));
+	}
+
+	// pages of 2 end between (a, 2) and (b, 2), and between (b, 3) and (c, 2)
+	private List<ElementKey> tiedElementKeys() {
+		return new ArrayList<>(Arrays.asList(new ElementKey("a-smartspace", 1), new ElementKey("a-smartspace", 2),
+				new ElementKey("b-smartspace", 2), new ElementKey("b-smartspace", 3), new ElementKey("c-smartspace", 2)));
+	}
+
+	private ElementEntity element(ElementKey key, Location location, boolean expired) {
+		ElementEntity element = faker.entity().element(key);
+		element.setLocation(location);
+		element.setExpired(expired);
+		return element;
+	}
+
+	private List<Map<String, String>> boundaryKeys(List<ElementKey> keys) {
+		Function<ElementKey, Map<String, String>> boundaryKey = key -> new ElementBoundary(
+				faker.entity().element(key)).getKey();
+		return keys.stream().map(boundaryKey).collect(Collectors.toList());
+	}
+
+	/**
+	 * GET the pages until there is no continuation token.
+	 *
+	 * @return the number of requests
+	 */
+	private <B> int walk(String url, Class<B[]> pageType, List<B> rv, UserEntity user) {
+		String continuation = "";
+		int requests = 0;
+		while (continuation != null) {
+			ResponseEntity<B[]> response = this.restTemplate.getForEntity(url, pageType, user.getUserSmartspace(),
+					user.getUserEmail(), continuation);
+			rv.addAll(Arrays.asList(response.getBody()));
+			continuation = response.getHeaders().getFirst(ContinuationToken.HEADER);
+			requests++;
+		}
+		return requests;
+	}
+}
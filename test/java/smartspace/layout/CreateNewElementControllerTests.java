@@ -1,6 +1,7 @@
 package smartspace.layout;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.util.List;
 
@@ -16,6 +17,7 @@ import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import smartspace.dao.EnhancedElementDao;
@@ -112,6 +114,24 @@ public class CreateNewElementControllerTests {
 		assertThat(this.elementDao.readAll()).hasSize(size);
 	}
 
+	@Test
+	public void testPostNewElementWithLocationOutOfRange() throws Exception {
+		// GIVEN the database contain one MANAGER
+		UserEntity manager = faker.entity().user();
+		manager.setRole(UserRole.MANAGER);
+		this.userDao.create(manager);
+
+		// WHEN I POST new element whose x is not a latitude
+		ElementBoundary newElement = faker.boundary().element();
+		newElement.getLatlng().put("lat", 95.0);
+
+		// THEN the element is rejected with 400 and is not created
+		assertThatThrownBy(() -> this.restTemplate.postForObject(this.baseUrl, newElement, ElementBoundary.class,
+				manager.getUserSmartspace(), manager.getUserEmail()))
+						.isInstanceOf(HttpClientErrorException.BadRequest.class);
+		assertThat(this.elementDao.readAll()).isEmpty();
+	}
+
 	@Test(expected = Exception.class)
 	public void testPostNewElementWithWrongManagerEmail() throws Exception {
 		// GIVEN the database contain MANAGER
@@ -256,7 +256,7 @@ public class ElementControllerIntegrationTests {
 		elements[3].setKey(null);
 		elements[3].setName(null);
 		
-		// THEN there is an exception and the database should be empty (@Transactional behavior working as intended)
+		// THEN there is an exception and the database should be empty (the batch is validated before it is written)
 		try {
 			this.restTemplate.postForObject(this.baseUrl, elements, ElementBoundary[].class, admin.getUserSmartspace(), admin.getUserEmail());
 			throw new RuntimeException("some elements are invalid but there was no exception"); // will only get to this line if there was no exception
@@ -0,0 +1,222 @@
+package smartspace.layout;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import smartspace.dao.EnhancedActionDao;
+import smartspace.dao.EnhancedElementDao;
+import smartspace.dao.EnhancedUserDao;
+import smartspace.data.ActionEntity;
+import smartspace.data.ActionKey;
+import smartspace.data.ElementEntity;
+import smartspace.data.ElementKey;
+import smartspace.data.UserEntity;
+import smartspace.data.UserKey;
+import smartspace.data.UserRole;
+import smartspace.data.util.Faker;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = { "spring.profiles.active=default,test" })
+public class NdjsonExportIntegrationTests {
+	private String baseUrl;
+	private int port;
+	private RestTemplate restTemplate;
+	private EnhancedElementDao<ElementKey> elementDao;
+	private EnhancedUserDao<UserKey> userDao;
+	private EnhancedActionDao actionDao;
+	private ObjectMapper jackson;
+	private Faker faker;
+
+	@Autowired
+	public void setElementDao(EnhancedElementDao<ElementKey> elementDao) {
+		this.elementDao = elementDao;
+	}
+
+	@Autowired
+	public void setUserDao(EnhancedUserDao<UserKey> userDao) {
+		this.userDao = userDao;
+	}
+
+	@Autowired
+	public void setActionDao(EnhancedActionDao actionDao) {
+		this.actionDao = actionDao;
+	}
+
+	@Autowired
+	public void setJackson(ObjectMapper jackson) {
+		this.jackson = jackson;
+	}
+
+	@LocalServerPort
+	public void setPort(int port) {
+		this.port = port;
+		this.restTemplate = new RestTemplate();
+	}
+
+	@PostConstruct
+	public void init() {
+		this.baseUrl = "http://localhost:" + port + "/smartspace/admin/{entities}/{adminSmartspace}/{adminEmail}/export";
+		this.faker = new Faker();
+	}
+
+	@After
+	public void tearDown() {
+		this.elementDao.deleteAll();
+		this.userDao.deleteAll();
+		this.actionDao.deleteAll();
+	}
+
+	@Test
+	public void testExportElementsWritesOneLinePerElement() throws Exception {
+		// GIVEN the database contains an admin and 3 elements
+		UserEntity admin = this.userDao.create(faker.entity().user(UserRole.ADMIN));
+		List<ElementEntity> elements = faker.entity().elementList(3).stream().map(this.elementDao::create)
+				.collect(Collectors.toList());
+
+		// WHEN the admin exports the elements
+		List<ElementBoundary> rv = read(export("elements", admin, null), ElementBoundary.class);
+
+		// THEN there is one line for each element
+		assertThat(rv).extracting(ElementBoundary::getKey).containsExactlyInAnyOrderElementsOf(
+				elements.stream().map(element -> new ElementBoundary(element).getKey()).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void testExportElementsModifiedSince() throws Exception {
+		// GIVEN the database contains an admin and 2 elements
+		// AND then 1 more element
+		UserEntity admin = this.userDao.create(faker.entity().user(UserRole.ADMIN));
+		faker.entity().elementList(2).forEach(this.elementDao::create);
+		Date since = later();
+		ElementEntity modified = this.elementDao.create(faker.entity().element());
+
+		// WHEN the admin exports the elements modified since the last one was created
+		List<ElementBoundary> rv = read(export("elements", admin, since), ElementBoundary.class);
+
+		// THEN only the last element is exported
+		assertThat(rv).extracting(ElementBoundary::getKey).containsExactly(new ElementBoundary(modified).getKey());
+	}
+
+	@Test
+	public void testExportUsersModifiedSince() throws Exception {
+		// GIVEN the database contains an admin and 2 players
+		// AND then 1 more player
+		UserEntity admin = this.userDao.create(faker.entity().user(UserRole.ADMIN));
+		this.userDao.create(faker.entity().user(UserRole.PLAYER));
+		this.userDao.create(faker.entity().user(UserRole.PLAYER));
+		Date since = later();
+		UserEntity modified = this.userDao.create(faker.entity().user(UserRole.PLAYER));
+
+		// WHEN the admin exports all users and the users modified since the last one was created
+		List<UserBoundary> all = read(export("users", admin, null), UserBoundary.class);
+		List<UserBoundary> rv = read(export("users", admin, since), UserBoundary.class);
+
+		// THEN all 4 users are in the full export
+		// AND only the last one is in the other
+		assertThat(all).hasSize(4);
+		assertThat(rv).extracting(UserBoundary::getKey).containsExactly(new UserBoundary(modified).getKey());
+	}
+
+	@Test
+	public void testExportActionsModifiedSince() throws Exception {
+		// GIVEN the database contains an admin, an element and 2 actions
+		// AND then 1 more action
+		UserEntity admin = this.userDao.create(faker.entity().user(UserRole.ADMIN));
+		ElementEntity element = this.elementDao.create(faker.entity().element());
+		this.actionDao.create(faker.entity().action(element));
+		this.actionDao.create(faker.entity().action(element));
+		Date since = later();
+		ActionEntity created = this.actionDao.create(faker.entity().action(element));
+
+		// WHEN the admin exports the actions modified since then
+		List<ActionBoundary> rv = read(export("actions", admin, since), ActionBoundary.class);
+
+		// THEN only the last action is exported
+		assertThat(rv).extracting(ActionBoundary::getActionKey).containsExactly(new ActionBoundary(created).getActionKey());
+	}
+
+	@Test
+	public void testExportActionsImportedSince() throws Exception {
+		// GIVEN the database contains an admin, an element and an action
+		// AND then an action created a year ago in another smartspace is imported
+		UserEntity admin = this.userDao.create(faker.entity().user(UserRole.ADMIN));
+		ElementEntity element = this.elementDao.create(faker.entity().element());
+		this.actionDao.create(faker.entity().action(element));
+		Date since = later();
+		ActionEntity imported = faker.entity().action(element, new ActionKey("other-smartspace", 1));
+		imported.setCreationTimestamp(new Date(since.getTime() - TimeUnit.DAYS.toMillis(365)));
+		imported = this.actionDao.importAction(imported);
+
+		// WHEN the admin exports the actions modified since then
+		List<ActionBoundary> rv = read(export("actions", admin, since), ActionBoundary.class);
+
+		// THEN the imported action is exported, though it was created before
+		assertThat(rv).extracting(ActionBoundary::getActionKey).containsExactly(new ActionBoundary(imported).getActionKey());
+	}
+
+	@Test
+	public void testExportByPlayerIsRejected() throws Exception {
+		// GIVEN the database contains a player and an element
+		UserEntity player = this.userDao.create(faker.entity().user(UserRole.PLAYER));
+		this.elementDao.create(faker.entity().element());
+
+		// WHEN the player exports the elements
+		// THEN there is an exception
+		assertThatThrownBy(() -> export("elements", player, null)).isInstanceOf(Exception.class);
+	}
+
+	private String export(String entities, UserEntity admin, Date modifiedSince) {
+		if (modifiedSince == null) {
+			return this.restTemplate.getForObject(this.baseUrl, String.class, entities, admin.getUserSmartspace(),
+					admin.getUserEmail());
+		}
+		return this.restTemplate.getForObject(this.baseUrl + "?modifiedSince={modifiedSince}", String.class, entities,
+				admin.getUserSmartspace(), admin.getUserEmail(),
+				DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(modifiedSince.toInstant().atOffset(ZoneOffset.UTC)));
+	}
+
+	private <B> List<B> read(String ndjson, Class<B> boundaryType) throws Exception {
+		List<B> rv = new ArrayList<>();
+		if (ndjson == null) {
+			return rv;
+		}
+		for (String line : ndjson.split("\n")) {
+			if (!line.isEmpty()) {
+				rv.add(this.jackson.readValue(line, boundaryType));
+			}
+		}
+		return rv;
+	}
+
+	// a time after everything written so far, and before anything written next
+	private Date later() throws InterruptedException {
+		Thread.sleep(20);
+		Date rv = new Date();
+		Thread.sleep(20);
+		return rv;
+	}
+}
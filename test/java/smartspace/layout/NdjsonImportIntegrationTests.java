@@ -0,0 +1,210 @@
+package smartspace.layout;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import smartspace.dao.EnhancedElementDao;
+import smartspace.dao.EnhancedUserDao;
+import smartspace.data.ElementEntity;
+import smartspace.data.ElementKey;
+import smartspace.data.UserEntity;
+import smartspace.data.UserKey;
+import smartspace.data.UserRole;
+import smartspace.data.util.Faker;
+import smartspace.infra.ImportSummary;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = { "spring.profiles.active=default,test", "smartspace.import.batchSize=2" })
+public class NdjsonImportIntegrationTests {
+	private String baseUrl;
+	private int port;
+	private RestTemplate restTemplate;
+	private EnhancedElementDao<ElementKey> elementDao;
+	private EnhancedUserDao<UserKey> userDao;
+	private ObjectMapper jackson;
+	private Faker faker;
+
+	@Autowired
+	public void setElementDao(EnhancedElementDao<ElementKey> elementDao) {
+		this.elementDao = elementDao;
+	}
+
+	@Autowired
+	public void setUserDao(EnhancedUserDao<UserKey> userDao) {
+		this.userDao = userDao;
+	}
+
+	@Autowired
+	public void setJackson(ObjectMapper jackson) {
+		this.jackson = jackson;
+	}
+
+	@LocalServerPort
+	public void setPort(int port) {
+		this.port = port;
+		this.restTemplate = new RestTemplate();
+	}
+
+	@PostConstruct
+	public void init() {
+		this.baseUrl = "http://localhost:" + port + "/smartspace/admin/elements/{adminSmartspace}/{adminEmail}";
+		this.faker = new Faker();
+	}
+
+	@After
+	public void tearDown() {
+		this.elementDao.deleteAll();
+		this.userDao.deleteAll();
+	}
+
+	@Test
+	public void testImportOfExportRestoresTheElements() throws Exception {
+		// GIVEN the database contains an admin and 5 elements
+		// AND they were exported and then deleted
+		UserEntity admin = this.userDao.create(faker.entity().user(UserRole.ADMIN));
+		List<ElementEntity> elements = faker.entity().elementList(5).stream().map(this.elementDao::importElement)
+				.collect(Collectors.toList());
+		String exported = export(admin, null);
+		this.elementDao.deleteAll();
+
+		// WHEN the admin imports the export
+		ImportSummary rv = importElements(admin, exported);
+
+		// THEN all 5 elements are imported in 3 chunks
+		// AND the database contains them again
+		assertThat(rv.getRead()).isEqualTo(5);
+		assertThat(rv.getImported()).isEqualTo(5);
+		assertThat(rv.getFailed()).isZero();
+		assertThat(this.elementDao.readAll()).extracting(ElementEntity::getKey)
+				.containsExactlyInAnyOrderElementsOf(elements.stream().map(ElementEntity::getKey).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void testMalformedLineStopsTheImport() throws Exception {
+		// GIVEN the database contains an admin
+		UserEntity admin = this.userDao.create(faker.entity().user(UserRole.ADMIN));
+		ElementBoundary[] elements = faker.boundary().elementArray(3);
+
+		// WHEN the admin imports 2 elements, a line that is not JSON and another element
+		String body = line(elements[0]) + line(elements[1]) + "{\"name\": \n" + line(elements[2]);
+		ImportSummary rv = importElements(admin, body);
+
+		// THEN the 2 elements before the line are imported
+		// AND the line is reported and nothing after it is read
+		assertThat(rv.getImported()).isEqualTo(2);
+		assertThat(rv.getFailed()).isEqualTo(1);
+		assertThat(rv.getErrors()).hasSize(1).allMatch(error -> error.startsWith("line "));
+		assertThat(this.elementDao.readAll()).hasSize(2);
+	}
+
+	@Test
+	public void testInvalidElementFailsOnlyItselfInItsChunk() throws Exception {
+		// GIVEN the database contains an admin
+		UserEntity admin = this.userDao.create(faker.entity().user(UserRole.ADMIN));
+		ElementBoundary[] elements = faker.boundary().elementArray(4);
+
+		// WHEN the admin imports 4 elements and the second one has no name
+		elements[1].setName(null);
+		String body = line(elements[0]) + line(elements[1]) + line(elements[2]) + line(elements[3]);
+		ImportSummary rv = importElements(admin, body);
+
+		// THEN the other element of its chunk and the next chunk are imported
+		// AND only the element without a name failed
+		assertThat(rv.getRead()).isEqualTo(4);
+		assertThat(rv.getImported()).isEqualTo(3);
+		assertThat(rv.getFailed()).isEqualTo(1);
+		assertThat(this.elementDao.readAll()).hasSize(3);
+	}
+
+	@Test
+	public void testImportOfExportModifiedSince() throws Exception {
+		// GIVEN the database contains an admin and 2 elements
+		// AND then 1 more element
+		UserEntity admin = this.userDao.create(faker.entity().user(UserRole.ADMIN));
+		faker.entity().elementList(2).forEach(this.elementDao::importElement);
+		Date since = later();
+		ElementEntity modified = this.elementDao.importElement(faker.entity().element());
+
+		// WHEN the elements modified since then are exported
+		// AND the admin imports them into an empty database
+		String exported = export(admin, since);
+		this.elementDao.deleteAll();
+		ImportSummary rv = importElements(admin, exported);
+
+		// THEN only the last element is imported
+		assertThat(rv.getImported()).isEqualTo(1);
+		assertThat(this.elementDao.readAll()).extracting(ElementEntity::getKey).containsExactly(modified.getKey());
+	}
+
+	@Test
+	public void testImportByPlayerIsRejected() throws Exception {
+		// GIVEN the database contains a player
+		UserEntity player = this.userDao.create(faker.entity().user(UserRole.PLAYER));
+		ElementBoundary[] elements = faker.boundary().elementArray(1);
+
+		// WHEN the player imports an element
+		// THEN the response is 401
+		// AND nothing is imported
+		assertThatThrownBy(() -> importElements(player, line(elements[0])))
+				.isInstanceOf(HttpClientErrorException.class)
+				.satisfies(e -> assertThat(((HttpClientErrorException) e).getStatusCode())
+						.isEqualTo(HttpStatus.UNAUTHORIZED));
+		assertThat(this.elementDao.readAll()).isEmpty();
+	}
+
+	private ImportSummary importElements(UserEntity admin, String ndjson) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.parseMediaType(NdjsonExport.MEDIA_TYPE));
+		return this.restTemplate.postForObject(this.baseUrl + "/import", new HttpEntity<>(ndjson, headers),
+				ImportSummary.class, admin.getUserSmartspace(), admin.getUserEmail());
+	}
+
+	private String export(UserEntity admin, Date modifiedSince) {
+		if (modifiedSince == null) {
+			return this.restTemplate.getForObject(this.baseUrl + "/export", String.class, admin.getUserSmartspace(),
+					admin.getUserEmail());
+		}
+		return this.restTemplate.getForObject(this.baseUrl + "/export?modifiedSince={modifiedSince}", String.class,
+				admin.getUserSmartspace(), admin.getUserEmail(),
+				DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(modifiedSince.toInstant().atOffset(ZoneOffset.UTC)));
+	}
+
+	private String line(ElementBoundary element) throws Exception {
+		return this.jackson.writeValueAsString(element) + "\n";
+	}
+
+	// a time after everything written so far, and before anything written next
+	private Date later() throws InterruptedException {
+		Thread.sleep(20);
+		Date rv = new Date();
+		Thread.sleep(20);
+		return rv;
+	}
+}
@@ -1,7 +1,10 @@
 package smartspace.layout;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import java.util.stream.Collectors;
@@ -17,8 +20,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import smartspace.dao.EnhancedUserDao;
@@ -243,6 +249,35 @@ public class UserControllerIntegrationTests {
 		
 	}
 	
+	@Test
+	public void testGetAllUsersUsingContinuationToken() throws Exception {
+
+		// GIVEN the database contains 4 users and 1 admin
+		List<UserEntity> usersEntity = faker.entity().userList(4).stream().map(userDao::create)
+				.collect(Collectors.toList());
+		UserEntity newAdmin = this.userDao.create(faker.entity().user(UserRole.ADMIN));
+		usersEntity.add(newAdmin);
+		usersEntity.sort((u1, u2) -> u1.getKey().compareTo(u2.getKey()));
+
+		// WHEN I GET users of size 2 following the continuation token until there is none
+		List<UserBoundary> pages = new ArrayList<>();
+		String continuation = "";
+		int requests = 0;
+		while (continuation != null) {
+			ResponseEntity<UserBoundary[]> response = this.restTemplate.getForEntity(
+					this.baseUrl + "?size={size}&continuation={continuation}", UserBoundary[].class,
+					newAdmin.getUserSmartspace(), newAdmin.getUserEmail(), 2, continuation);
+			pages.addAll(Arrays.asList(response.getBody()));
+			continuation = response.getHeaders().getFirst(ContinuationToken.HEADER);
+			requests++;
+		}
+
+		// THEN I receive all 5 users sorted by key in 3 pages
+		assertThat(requests).isEqualTo(3);
+		assertThat(pages).usingElementComparatorOnFields("key")
+				.containsExactlyElementsOf(usersEntity.stream().map(UserBoundary::new).collect(Collectors.toList()));
+	}
+
 	@Test
 	public void testPostInvalidUsersWithValidUsers() throws Exception {
 		// GIVEN the database contains an admin user
@@ -253,7 +288,7 @@ public class UserControllerIntegrationTests {
 		users[3].setUsername(null);
 		users[3].setAvatar(null);
 		
-		// THEN there is an exception and the database should only contain the admin user (@Transactional behavior working as intended)
+		// THEN there is an exception and the database should only contain the admin user (the batch is validated before it is written)
 		try {
 			this.restTemplate.postForObject(this.baseUrl, users, UserBoundary[].class, admin.getUserSmartspace(), admin.getUserEmail());
 			throw new RuntimeException("some users are invalid but there was no exception"); // will only get to this line if there was no exception
@@ -276,4 +311,43 @@ public class UserControllerIntegrationTests {
 		assertThat(this.userDao.readAll()).hasSize(4);
 	}
 
+	@Test
+	public void testDemotedAdminIsRefused() throws Exception {
+		// GIVEN the database contains an admin whose role is cached by a first request
+		UserEntity admin = this.userDao.create(faker.entity().user(UserRole.ADMIN));
+		this.restTemplate.getForObject(this.baseUrl + "?size={size}", UserBoundary[].class,
+				admin.getUserSmartspace(), admin.getUserEmail(), 10);
+
+		// WHEN the admin is demoted to a player through the DAO
+		UserEntity demote = new UserEntity();
+		demote.setKey(admin.getKey());
+		demote.setRole(UserRole.PLAYER);
+		this.userDao.update(demote);
+
+		// THEN the next admin-only request is refused
+		assertThatThrownBy(() -> this.restTemplate.getForObject(this.baseUrl + "?size={size}", UserBoundary[].class,
+				admin.getUserSmartspace(), admin.getUserEmail(), 10))
+			.isInstanceOf(HttpClientErrorException.class)
+			.satisfies(e -> assertThat(((HttpClientErrorException) e).getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED));
+	}
+
+	@Test
+	public void testRepeatedAdminRequestsHitTheIdentityCache() throws Exception {
+		// GIVEN the database contains an admin
+		UserEntity admin = this.userDao.create(faker.entity().user(UserRole.ADMIN));
+		long hits = (Long) this.userDao.readIdentityCacheStats().get("hits");
+		long misses = (Long) this.userDao.readIdentityCacheStats().get("misses");
+
+		// WHEN the admin GETs users 3 times
+		for (int i = 0; i < 3; i++) {
+			this.restTemplate.getForObject(this.baseUrl + "?size={size}", UserBoundary[].class,
+					admin.getUserSmartspace(), admin.getUserEmail(), 10);
+		}
+
+		// THEN the role is read from the database once and from the cache twice
+		assertThat(this.userDao.readIdentityCacheStats())
+			.containsEntry("hits", hits + 2)
+			.containsEntry("misses", misses + 1);
+	}
+
 }
@@ -0,0 +1,114 @@
+package smartspace.plugin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import smartspace.data.ActionEntity;
+
+public class PluginRegistryUnitTests {
+
+	@Test
+	public void testLookupIgnoresCase() throws Exception {
+		// GIVEN a registry of a plugin with mixed case types
+		Plugin plugin = new MixedCasePlugin();
+		PluginRegistry registry = new PluginRegistry(Arrays.asList(plugin));
+
+		// WHEN I look up the types in other cases
+		// THEN the plugin is found
+		assertThat(registry.get("checkin")).containsSame(plugin);
+		assertThat(registry.get("CHECKIN")).containsSame(plugin);
+		assertThat(registry.get(" Check-Out ")).containsSame(plugin);
+	}
+
+	@Test
+	public void testPluginWithoutAnnotationIsFoundByClassName() throws Exception {
+		// GIVEN a registry of a plugin named <Type>ActionPlugin without @ActionType
+		Plugin plugin = new ResetActionPlugin();
+		PluginRegistry registry = new PluginRegistry(Arrays.asList(plugin));
+
+		// WHEN I look up the type of its name
+		// THEN the plugin is found
+		assertThat(registry.get("RESET")).containsSame(plugin);
+	}
+
+	@Test
+	public void testUnknownTypeIsNotFound() throws Exception {
+		// GIVEN a registry of the echo plugin
+		PluginRegistry registry = new PluginRegistry(Arrays.asList(new EchoActionPlugin()));
+
+		// WHEN I look up a type no plugin processes, or no type
+		// THEN nothing is found
+		assertThat(registry.get("unknown")).isEmpty();
+		assertThat(registry.get("")).isEmpty();
+		assertThat(registry.get(null)).isEmpty();
+	}
+
+	@Test
+	public void testEmptyRegistryFindsNothing() throws Exception {
+		// GIVEN there are no plugins
+		PluginRegistry registry = new PluginRegistry(Collections.emptyList());
+
+		// WHEN I look up the echo type
+		// THEN nothing is found
+		assertThat(registry.get("echo")).isEmpty();
+	}
+
+	@Test
+	public void testDuplicateTypeFailsAtStartup() throws Exception {
+		// GIVEN two plugins that process the same type in different cases
+
+		// WHEN the registry is built
+		// THEN it fails, naming the type and both plugins
+		assertThatThrownBy(() -> new PluginRegistry(Arrays.asList(new EchoActionPlugin(), new LoudEchoPlugin())))
+			.isInstanceOf(IllegalStateException.class)
+			.hasMessageContaining("ECHO")
+			.hasMessageContaining(EchoActionPlugin.class.getName())
+			.hasMessageContaining(LoudEchoPlugin.class.getName());
+	}
+
+	@Test
+	public void testPluginWithoutTypeFailsAtStartup() throws Exception {
+		// GIVEN a plugin without @ActionType whose name doesn't end with ActionPlugin
+
+		// WHEN the registry is built
+		// THEN it fails
+		assertThatThrownBy(() -> new PluginRegistry(Arrays.asList(new NamelessPlugin())))
+			.isInstanceOf(IllegalStateException.class)
+			.hasMessageContaining(NamelessPlugin.class.getName());
+	}
+
+	@ActionType({ "CheckIn", "Check-Out" })
+	private static class MixedCasePlugin implements Plugin {
+		@Override
+		public ActionEntity process(ActionEntity action) {
+			return action;
+		}
+	}
+
+	private static class ResetActionPlugin implements Plugin {
+		@Override
+		public ActionEntity process(ActionEntity action) {
+			return action;
+		}
+	}
+
+	@ActionType("ECHO")
+	private static class LoudEchoPlugin implements Plugin {
+		@Override
+		public ActionEntity process(ActionEntity action) {
+			return action;
+		}
+	}
+
+	private static class NamelessPlugin implements Plugin {
+		@Override
+		public ActionEntity process(ActionEntity action) {
+			return action;
+		}
+	}
+}